@@ -18,11 +18,17 @@ import static org.artofsolving.jodconverter.office.OfficeUtils.toUnoProperties;
 import static org.artofsolving.jodconverter.office.OfficeUtils.toUrl;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
+import org.artofsolving.jodconverter.office.CancellableOfficeTask;
+import org.artofsolving.jodconverter.office.FingerprintedOfficeTask;
 import org.artofsolving.jodconverter.office.OfficeContext;
 import org.artofsolving.jodconverter.office.OfficeException;
-import org.artofsolving.jodconverter.office.OfficeTask;
 
 import com.sun.star.frame.XComponentLoader;
 import com.sun.star.frame.XStorable;
@@ -33,16 +39,57 @@ import com.sun.star.task.ErrorCodeIOException;
 import com.sun.star.util.CloseVetoException;
 import com.sun.star.util.XCloseable;
 
-public abstract class AbstractConversionTask implements OfficeTask {
+public abstract class AbstractConversionTask implements CancellableOfficeTask, FingerprintedOfficeTask {
 
     private final File inputFile;
     private final File outputFile;
 
+    private volatile boolean cancelled = false;
+    private volatile XComponent loadedDocument;
+    private volatile String inputFingerprint;
+
     public AbstractConversionTask(File inputFile, File outputFile) {
         this.inputFile = inputFile;
         this.outputFile = outputFile;
     }
 
+    protected File getInputFile() {
+        return inputFile;
+    }
+
+    protected File getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * @return the SHA-256 hash of the input file, or <code>null</code> if it cannot be read
+     */
+    public String getInputFingerprint() {
+        if (inputFingerprint == null) {
+            InputStream inputStream = null;
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                inputStream = new FileInputStream(inputFile);
+                byte[] buffer = new byte[8192];
+                for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+                StringBuilder fingerprint = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    fingerprint.append(String.format("%02x", b));
+                }
+                inputFingerprint = fingerprint.toString();
+            } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+                return null;
+            } catch (java.io.IOException ioException) {
+                return null;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+        return inputFingerprint;
+    }
+
     protected abstract Map<String,?> getLoadProperties(File inputFile);
 
     protected abstract Map<String,?> getStoreProperties(File outputFile, XComponent document);
@@ -50,26 +97,63 @@ public abstract class AbstractConversionTask implements OfficeTask {
     public void execute(OfficeContext context) throws OfficeException {
         XComponent document = null;
         try {
+            checkCancelled();
             document = loadDocument(context, inputFile);
+            loadedDocument = document;
+            checkCancelled();
             modifyDocument(document);
+            checkCancelled();
             storeDocument(document, outputFile);
         } catch (OfficeException officeException) {
             throw officeException;
         } catch (Exception exception) {
+            if (cancelled) {
+                throw new OfficeException("conversion cancelled", exception);
+            }
             throw new OfficeException("conversion failed", exception);
         } finally {
+            loadedDocument = null;
             if (document != null) {
-                XCloseable closeable = cast(XCloseable.class, document);
-                if (closeable != null) {
-                    try {
-                        closeable.close(true);
-                    } catch (CloseVetoException closeVetoException) {
-                        // whoever raised the veto should close the document
-                    }
-                } else {
-                    document.dispose();
+                closeDocument(document);
+            }
+        }
+    }
+
+    /**
+     * Stops the conversion: closes the document if it has been loaded already, so that
+     * the office process is freed as soon as it gets to it.
+     */
+    public void cancel() {
+        cancelled = true;
+        XComponent document = loadedDocument;
+        if (document != null) {
+            closeDocument(document);
+        }
+    }
+
+    private void checkCancelled() throws OfficeException {
+        if (cancelled) {
+            throw new OfficeException("conversion cancelled");
+        }
+    }
+
+    private void closeDocument(XComponent document) {
+        try {
+            XCloseable closeable = cast(XCloseable.class, document);
+            if (closeable != null) {
+                try {
+                    closeable.close(true);
+                } catch (CloseVetoException closeVetoException) {
+                    // whoever raised the veto should close the document
                 }
+            } else {
+                document.dispose();
+            }
+        } catch (RuntimeException runtimeException) {
+            if (!cancelled) {
+                throw runtimeException;
             }
+            // already closed by a concurrent cancel()
         }
     }
 
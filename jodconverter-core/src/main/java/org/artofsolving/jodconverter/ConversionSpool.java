@@ -0,0 +1,429 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FilenameUtils;
+import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.office.OfficeException;
+import org.artofsolving.jodconverter.office.OfficeTask;
+import org.artofsolving.jodconverter.office.OfficeTaskFuture;
+import org.artofsolving.jodconverter.office.OfficeTaskListener;
+import org.artofsolving.jodconverter.office.OfficeTaskRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the documents dropped into one or more inbox directories, writing the results
+ * to an outbox directory and moving the documents that could not be converted, along with
+ * the reason, to a failure directory.
+ * <p>
+ * The inboxes are scanned every <code>pollInterval</code> milliseconds. A document is
+ * claimed by renaming it into the processing directory, which succeeds for one claimant
+ * only, so several JVMs can share the same directories as long as they are all on the same
+ * file system. Each spool claims no more documents than it has conversions free, leaving
+ * the rest to the others. Documents are picked up once they have not been modified for
+ * <code>minFileAge</code> milliseconds; upstream systems should still write them under a
+ * hidden name (starting with a dot) and rename them when complete, as hidden files are
+ * ignored. Results appear in the outbox by rename too, so they are never seen half written.
+ * A result or failed document whose name is already taken, or is being taken by another
+ * spool at the same time, gets the claim id appended.
+ * <p>
+ * A document turned away by the office manager for the time being, e.g. because its queue
+ * is full or it is stopped, goes back to its inbox to be picked up again.
+ * <p>
+ * Documents claimed by a JVM that dies before converting them stay in the processing
+ * directory until a spool starts up and finds them claimed for longer than the claim
+ * timeout; they then go back to the first inbox.
+ *
+ * @since 3.01.2.00
+ */
+public class ConversionSpool {
+
+    private static final String ERROR_SUFFIX = ".error.txt";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final OfficeDocumentConverter converter;
+    private final DocumentFormat outputFormat;
+    private final File processingDirectory;
+    private final File outboxDirectory;
+    private final File failureDirectory;
+    private final List<File> inboxDirectories = new ArrayList<File>();
+
+    private long pollInterval = 1000L;  // 1 second
+    private long minFileAge = 2000L;  // 2 seconds
+    private int maxConcurrentConversions = 4;
+    private long claimTimeout = 3600000L;  // 1 hour
+
+    // distinguishes the documents claimed by this spool from those of other JVMs
+    private final String claimPrefix = Long.toString(new Random().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private Semaphore conversionSlots;
+    private ScheduledExecutorService poller;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getName());
+
+    /**
+     * @param converter
+     * @param outputFormat
+     * @param processingDirectory
+     *            where documents are kept while being converted; must be on the same file
+     *            system as the inboxes and the outbox
+     * @param outboxDirectory
+     * @param failureDirectory
+     */
+    public ConversionSpool(OfficeDocumentConverter converter, DocumentFormat outputFormat, File processingDirectory, File outboxDirectory, File failureDirectory) {
+        this.converter = converter;
+        this.outputFormat = outputFormat;
+        this.processingDirectory = processingDirectory;
+        this.outboxDirectory = outboxDirectory;
+        this.failureDirectory = failureDirectory;
+    }
+
+    public ConversionSpool addInboxDirectory(File inboxDirectory) {
+        checkNotStarted();
+        inboxDirectories.add(inboxDirectory);
+        return this;
+    }
+
+    /**
+     * How often the inboxes are scanned for new documents. Defaults to 1 second.
+     *
+     * @param pollInterval in milliseconds
+     */
+    public ConversionSpool setPollInterval(long pollInterval) {
+        checkNotStarted();
+        if (pollInterval <= 0L) {
+            throw new IllegalArgumentException("pollInterval must be positive");
+        }
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * How long a document must have gone unmodified before it is picked up, so that one
+     * still being written is left alone. Defaults to 2 seconds.
+     *
+     * @param minFileAge in milliseconds
+     */
+    public ConversionSpool setMinFileAge(long minFileAge) {
+        checkNotStarted();
+        if (minFileAge < 0L) {
+            throw new IllegalArgumentException("minFileAge must not be negative");
+        }
+        this.minFileAge = minFileAge;
+        return this;
+    }
+
+    /**
+     * How many documents this spool converts at a time. Defaults to 4, which should usually
+     * match the number of office processes.
+     */
+    public ConversionSpool setMaxConcurrentConversions(int maxConcurrentConversions) {
+        checkNotStarted();
+        if (maxConcurrentConversions < 1) {
+            throw new IllegalArgumentException("maxConcurrentConversions must be at least 1");
+        }
+        this.maxConcurrentConversions = maxConcurrentConversions;
+        return this;
+    }
+
+    /**
+     * How long a document may stay claimed before a spool starting up takes it for one left
+     * behind by a spool that died, and puts it back into the first inbox. It must be well
+     * above the longest a conversion can wait and run, or documents still being converted
+     * by another spool are converted twice. Defaults to 1 hour; zero leaves claimed
+     * documents alone.
+     *
+     * @param claimTimeout in milliseconds
+     */
+    public ConversionSpool setClaimTimeout(long claimTimeout) {
+        checkNotStarted();
+        if (claimTimeout < 0L) {
+            throw new IllegalArgumentException("claimTimeout must not be negative");
+        }
+        this.claimTimeout = claimTimeout;
+        return this;
+    }
+
+    public synchronized void start() {
+        checkNotStarted();
+        if (inboxDirectories.isEmpty()) {
+            throw new IllegalStateException("no inbox directory");
+        }
+        for (File directory : new File[] { processingDirectory, outboxDirectory, failureDirectory }) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalStateException("could not create directory: " + directory);
+            }
+        }
+        if (claimTimeout > 0L) {
+            recoverClaims(System.currentTimeMillis() - claimTimeout);
+        }
+        conversionSlots = new Semaphore(maxConcurrentConversions);
+        poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ConversionSpoolThread");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        poller.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll();
+                } catch (RuntimeException runtimeException) {
+                    logger.error("could not scan inbox directories", runtimeException);
+                }
+            }
+        }, 0L, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops picking up new documents and waits for the conversions in progress to finish.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (poller == null) {
+            return;
+        }
+        poller.shutdown();
+        poller.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        conversionSlots.acquire(maxConcurrentConversions);
+        conversionSlots.release(maxConcurrentConversions);
+        poller = null;
+    }
+
+    /**
+     * Puts documents claimed before the given time back into the first inbox, and deletes
+     * partial outputs and name locks left from then.
+     */
+    private void recoverClaims(long claimedBefore) {
+        File[] claimedFiles = processingDirectory.listFiles();
+        if (claimedFiles != null) {
+            for (File claimedFile : claimedFiles) {
+                if (!claimedFile.isFile() || claimedFile.lastModified() >= claimedBefore) {
+                    continue;
+                }
+                // named <claim prefix>-<sequence>-<inbox name>
+                String[] claim = claimedFile.getName().split("-", 3);
+                if (claimedFile.getName().endsWith(PARTIAL_SUFFIX)) {
+                    claimedFile.delete();
+                } else if (claim.length == 3) {
+                    File inboxFile = new File(inboxDirectories.get(0), claim[2]);
+                    if (!inboxFile.exists() && claimedFile.renameTo(inboxFile)) {
+                        logger.warn(String.format("recovered '%s', claimed by a spool that did not finish it", claim[2]));
+                    }
+                }
+            }
+        }
+        for (File directory : new File[] { outboxDirectory, failureDirectory }) {
+            File[] lockFiles = directory.listFiles();
+            if (lockFiles == null) {
+                continue;
+            }
+            for (File lockFile : lockFiles) {
+                if (lockFile.getName().startsWith(".") && lockFile.getName().endsWith(LOCK_SUFFIX) && lockFile.lastModified() < claimedBefore) {
+                    lockFile.delete();
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        for (File inboxDirectory : inboxDirectories) {
+            File[] files = inboxDirectory.listFiles();
+            if (files == null) {
+                logger.warn("cannot read inbox directory: " + inboxDirectory);
+                continue;
+            }
+            // oldest first
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File file1, File file2) {
+                    long modified1 = file1.lastModified();
+                    long modified2 = file2.lastModified();
+                    return modified1 < modified2 ? -1 : (modified1 == modified2 ? 0 : 1);
+                }
+            });
+            long youngest = System.currentTimeMillis() - minFileAge;
+            for (File file : files) {
+                if (!file.isFile() || file.isHidden() || file.getName().startsWith(".") || file.lastModified() > youngest) {
+                    continue;
+                }
+                if (poller.isShutdown() || !conversionSlots.tryAcquire()) {
+                    return;
+                }
+                if (!convert(file)) {
+                    conversionSlots.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return <code>false</code> if no conversion was started, e.g. because the document
+     *         was claimed by another spool first
+     */
+    private boolean convert(final File file) {
+        final String name = file.getName();
+        final String claimId = claimPrefix + "-" + claimSequence.incrementAndGet();
+        final File claimedFile = new File(processingDirectory, claimId + "-" + name);
+        if (!file.renameTo(claimedFile)) {
+            return false;
+        }
+        // dates the claim for recovery
+        claimedFile.setLastModified(System.currentTimeMillis());
+        final String outputName = FilenameUtils.getBaseName(name) + "." + outputFormat.getExtension();
+        final File partialOutputFile = new File(processingDirectory, FilenameUtils.getBaseName(claimedFile.getName()) + "." + outputFormat.getExtension() + PARTIAL_SUFFIX);
+        OfficeTaskFuture future;
+        try {
+            future = converter.convertAsync(claimedFile, partialOutputFile, outputFormat);
+        } catch (IllegalStateException illegalStateException) {
+            // the office manager is stopped; leave the document for later
+            unclaim(claimedFile, file);
+            return false;
+        } catch (RuntimeException runtimeException) {
+            abandon(claimedFile, file, claimId, partialOutputFile, runtimeException);
+            return false;
+        }
+        future.addListener(new OfficeTaskListener() {
+            @Override
+            public void taskCompleted(OfficeTask task) {
+                try {
+                    File outputFile = moveToUniqueFile(partialOutputFile, outboxDirectory, outputName, claimId);
+                    if (outputFile != null) {
+                        claimedFile.delete();
+                        logger.info(String.format("converted '%s' to '%s'", name, outputFile.getName()));
+                    } else {
+                        fail(claimedFile, name, claimId, partialOutputFile, new OfficeException("could not move output to outbox: " + outputName));
+                    }
+                } finally {
+                    conversionSlots.release();
+                }
+            }
+
+            @Override
+            public void taskFailed(OfficeTask task, OfficeException exception) {
+                try {
+                    abandon(claimedFile, file, claimId, partialOutputFile, exception);
+                } finally {
+                    conversionSlots.release();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Puts a document that could not be converted back into its inbox if it was only
+     * turned away for now, e.g. because the queue was full, or else moves it to the failure
+     * directory.
+     */
+    private void abandon(File claimedFile, File inboxFile, String claimId, File partialOutputFile, RuntimeException exception) {
+        if (exception instanceof OfficeTaskRejectedException && ((OfficeTaskRejectedException) exception).isRetryable()) {
+            logger.info(String.format("conversion of '%s' was turned away (%s); trying again later", inboxFile.getName(), exception.getMessage()));
+            partialOutputFile.delete();
+            unclaim(claimedFile, inboxFile);
+        } else {
+            fail(claimedFile, inboxFile.getName(), claimId, partialOutputFile, exception);
+        }
+    }
+
+    private void unclaim(File claimedFile, File inboxFile) {
+        if (!claimedFile.renameTo(inboxFile)) {
+            logger.error(String.format("could not move '%s' back to its inbox; left at '%s'", inboxFile.getName(), claimedFile));
+        }
+    }
+
+    private void fail(File claimedFile, String name, String claimId, File partialOutputFile, RuntimeException exception) {
+        logger.warn(String.format("could not convert '%s'", name), exception);
+        partialOutputFile.delete();
+        File failedFile = moveToUniqueFile(claimedFile, failureDirectory, name, claimId);
+        if (failedFile == null) {
+            logger.error(String.format("could not move '%s' to failure directory; left at '%s'", name, claimedFile));
+            return;
+        }
+        try {
+            PrintWriter writer = new PrintWriter(new File(failureDirectory, failedFile.getName() + ERROR_SUFFIX), "UTF-8");
+            try {
+                exception.printStackTrace(writer);
+            } finally {
+                writer.close();
+            }
+        } catch (FileNotFoundException fileNotFoundException) {
+            logger.error(String.format("could not write error file for '%s'", name), fileNotFoundException);
+        } catch (UnsupportedEncodingException unsupportedEncodingException) {
+            throw new IllegalStateException(unsupportedEncodingException);
+        }
+    }
+
+    /**
+     * Moves a file into a directory under the given name, or under that name with the claim
+     * id appended if it is taken. Rename overwrites an existing file on most platforms, so a
+     * name, e.g. the output of <code>a.doc</code> when converting <code>a.docx</code>, is
+     * taken only after locking it: creating the lock file succeeds for one spool only, and
+     * the others fall back to their own unique name.
+     *
+     * @return where the file was moved, or <code>null</code> if it could not be moved
+     */
+    static File moveToUniqueFile(File file, File directory, String name, String claimId) {
+        File target = new File(directory, name);
+        File lockFile = new File(directory, "." + name + LOCK_SUFFIX);
+        if (createNewFile(lockFile)) {
+            try {
+                if (!target.exists() && file.renameTo(target)) {
+                    return target;
+                }
+            } finally {
+                lockFile.delete();
+            }
+        }
+        String extension = FilenameUtils.getExtension(name);
+        target = new File(directory, FilenameUtils.getBaseName(name) + "-" + claimId + (extension.length() > 0 ? "." + extension : ""));
+        return file.renameTo(target) ? target : null;
+    }
+
+    private static boolean createNewFile(File file) {
+        try {
+            return file.createNewFile();
+        } catch (IOException ioException) {
+            return false;
+        }
+    }
+
+    private void checkNotStarted() {
+        if (poller != null) {
+            throw new IllegalStateException("spool is already started");
+        }
+    }
+
+}
@@ -15,13 +15,18 @@ package org.artofsolving.jodconverter;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FilenameUtils;
 import org.artofsolving.jodconverter.document.DefaultDocumentFormatRegistry;
+import org.artofsolving.jodconverter.document.DocumentFamily;
 import org.artofsolving.jodconverter.document.DocumentFormat;
 import org.artofsolving.jodconverter.document.DocumentFormatRegistry;
 import org.artofsolving.jodconverter.office.OfficeException;
 import org.artofsolving.jodconverter.office.OfficeManager;
+import org.artofsolving.jodconverter.office.OfficeTaskEstimate;
+import org.artofsolving.jodconverter.office.OfficeTaskFuture;
+import org.artofsolving.jodconverter.office.OfficeTaskOptions;
 
 import com.sun.star.document.UpdateDocMode;
 
@@ -30,7 +35,21 @@ public class OfficeDocumentConverter {
     private final OfficeManager officeManager;
     private final DocumentFormatRegistry formatRegistry;
 
+    private static final String ANY_FORMAT = "*";
+
+    private static class Timeouts {
+        private final long queueTimeout;
+        private final long executionTimeout;
+
+        public Timeouts(long queueTimeout, long executionTimeout) {
+            this.queueTimeout = queueTimeout;
+            this.executionTimeout = executionTimeout;
+        }
+    }
+
     private Map<String,?> defaultLoadProperties = createDefaultLoadProperties();
+    private final Map<String,Timeouts> timeouts = new ConcurrentHashMap<String,Timeouts>();
+    private final Map<DocumentFamily,Double> costWeights = createDefaultCostWeights();
 
     public OfficeDocumentConverter(OfficeManager officeManager) {
         this(officeManager, new DefaultDocumentFormatRegistry());
@@ -49,10 +68,52 @@ public class OfficeDocumentConverter {
         return loadProperties;
     }
 
+    private Map<DocumentFamily,Double> createDefaultCostWeights() {
+        Map<DocumentFamily,Double> weights = new ConcurrentHashMap<DocumentFamily,Double>();
+        for (DocumentFamily family : DocumentFamily.values()) {
+            weights.put(family, 1.0);
+        }
+        // formulas and cell layout make spreadsheets costlier per byte than other documents
+        weights.put(DocumentFamily.SPREADSHEET, 2.0);
+        return weights;
+    }
+
     public void setDefaultLoadProperties(Map<String, ?> defaultLoadProperties) {
         this.defaultLoadProperties = defaultLoadProperties;
     }
 
+    /**
+     * Sets the queue and execution timeouts of conversions from one format to another,
+     * for conversions that do not set their own in their {@link OfficeTaskOptions}. A
+     * <code>null</code> format matches any format; a timeout of zero leaves the office
+     * manager's default in place. A setting for both formats takes precedence over one for
+     * the input format only, which takes precedence over one for the output format only.
+     *
+     * @param inputFormat
+     * @param outputFormat
+     * @param queueTimeout in milliseconds
+     * @param executionTimeout in milliseconds
+     * @since 3.01.2.00
+     */
+    public void setTimeouts(DocumentFormat inputFormat, DocumentFormat outputFormat, long queueTimeout, long executionTimeout) {
+        timeouts.put(timeoutsKey(inputFormat != null ? inputFormat.getExtension() : ANY_FORMAT, outputFormat != null ? outputFormat.getExtension() : ANY_FORMAT),
+                new Timeouts(queueTimeout, executionTimeout));
+    }
+
+    /**
+     * Sets how much a byte of input of the given family weighs in the estimated cost of a
+     * conversion, see {@link OfficeTaskOptions#setEstimatedCost(long)}.
+     * <p>
+     * Defaults to 2.0 for spreadsheets and 1.0 otherwise.
+     *
+     * @param family
+     * @param weight
+     * @since 3.01.2.00
+     */
+    public void setCostWeight(DocumentFamily family, double weight) {
+        costWeights.put(family, weight);
+    }
+
     public DocumentFormatRegistry getFormatRegistry() {
         return formatRegistry;
     }
@@ -64,12 +125,113 @@ public class OfficeDocumentConverter {
     }
 
     public void convert(File inputFile, File outputFile, DocumentFormat outputFormat) throws OfficeException {
+        convertAsync(inputFile, outputFile, outputFormat).join();
+    }
+
+    /**
+     * Queues a conversion without blocking the calling thread.
+     *
+     * @since 3.01.2.00
+     */
+    public OfficeTaskFuture convertAsync(File inputFile, File outputFile) throws OfficeException {
+        String outputExtension = FilenameUtils.getExtension(outputFile.getName());
+        DocumentFormat outputFormat = formatRegistry.getFormatByExtension(outputExtension);
+        return convertAsync(inputFile, outputFile, outputFormat);
+    }
+
+    /**
+     * Queues a conversion without blocking the calling thread.
+     *
+     * @since 3.01.2.00
+     */
+    public OfficeTaskFuture convertAsync(File inputFile, File outputFile, DocumentFormat outputFormat) throws OfficeException {
+        return convertAsync(inputFile, outputFile, outputFormat, new OfficeTaskOptions());
+    }
+
+    /**
+     * Queues a conversion with the given scheduling options without blocking the calling thread.
+     * The options are not modified, so they can be reused for other conversions; options
+     * left unset are filled in from the files and formats of this conversion.
+     *
+     * @since 3.01.2.00
+     */
+    public OfficeTaskFuture convertAsync(File inputFile, File outputFile, DocumentFormat outputFormat, OfficeTaskOptions taskOptions) throws OfficeException {
+        String inputExtension = FilenameUtils.getExtension(inputFile.getName());
+        DocumentFormat inputFormat = formatRegistry.getFormatByExtension(inputExtension);
+        OfficeTaskOptions options = taskOptions.copy();
+        if (options.getDocumentFamily() == null && inputFormat != null) {
+            options.setDocumentFamily(inputFormat.getInputFamily());
+        }
+        if (!options.isIdempotentSet()) {
+            options.setIdempotent(true);
+        }
+        if (options.getCostKey() == null) {
+            options.setCostKey(costKey(inputFile, inputFormat, outputFormat));
+        }
+        if (options.getEstimatedCost() == 0L) {
+            Double weight = inputFormat != null && inputFormat.getInputFamily() != null ? costWeights.get(inputFormat.getInputFamily()) : null;
+            options.setEstimatedCost(Math.round(inputFile.length() * (weight != null ? weight : 1.0)));
+        }
+        Timeouts formatTimeouts = getTimeouts(inputFormat, outputFormat);
+        if (formatTimeouts != null) {
+            if (options.getQueueTimeout() == 0L) {
+                options.setQueueTimeout(formatTimeouts.queueTimeout);
+            }
+            if (options.getExecutionTimeout() == 0L) {
+                options.setExecutionTimeout(formatTimeouts.executionTimeout);
+            }
+        }
+        return officeManager.submit(createConversionTask(inputFile, inputFormat, outputFile, outputFormat), options);
+    }
+
+    /**
+     * Estimates how long a conversion would wait and run if it were queued now, from the
+     * durations of recent conversions between the same formats of a similar input size.
+     *
+     * @param inputFile
+     * @param outputFormat
+     * @return
+     * @since 3.01.2.00
+     */
+    public OfficeTaskEstimate estimate(File inputFile, DocumentFormat outputFormat) {
         String inputExtension = FilenameUtils.getExtension(inputFile.getName());
         DocumentFormat inputFormat = formatRegistry.getFormatByExtension(inputExtension);
+        return officeManager.estimate(new OfficeTaskOptions().setCostKey(costKey(inputFile, inputFormat, outputFormat)));
+    }
+
+    private StandardConversionTask createConversionTask(File inputFile, DocumentFormat inputFormat, File outputFile, DocumentFormat outputFormat) {
         StandardConversionTask conversionTask = new StandardConversionTask(inputFile, outputFile, outputFormat);
         conversionTask.setDefaultLoadProperties(defaultLoadProperties);
         conversionTask.setInputFormat(inputFormat);
-        officeManager.execute(conversionTask);
+        return conversionTask;
+    }
+
+    private Timeouts getTimeouts(DocumentFormat inputFormat, DocumentFormat outputFormat) {
+        if (timeouts.isEmpty()) {
+            return null;
+        }
+        String inputExtension = inputFormat != null ? inputFormat.getExtension() : ANY_FORMAT;
+        String outputExtension = outputFormat != null ? outputFormat.getExtension() : ANY_FORMAT;
+        Timeouts formatTimeouts = timeouts.get(timeoutsKey(inputExtension, outputExtension));
+        if (formatTimeouts == null) {
+            formatTimeouts = timeouts.get(timeoutsKey(inputExtension, ANY_FORMAT));
+        }
+        if (formatTimeouts == null) {
+            formatTimeouts = timeouts.get(timeoutsKey(ANY_FORMAT, outputExtension));
+        }
+        return formatTimeouts;
+    }
+
+    /**
+     * Buckets input sizes by powers of two, starting below 16 kB.
+     */
+    private static String costKey(File inputFile, DocumentFormat inputFormat, DocumentFormat outputFormat) {
+        int sizeBucket = 64 - Long.numberOfLeadingZeros(inputFile.length() >> 14);
+        return timeoutsKey(inputFormat != null ? inputFormat.getExtension() : ANY_FORMAT, outputFormat != null ? outputFormat.getExtension() : ANY_FORMAT) + "#" + sizeBucket;
+    }
+
+    private static String timeoutsKey(String inputExtension, String outputExtension) {
+        return inputExtension + "->" + outputExtension;
     }
 
 }
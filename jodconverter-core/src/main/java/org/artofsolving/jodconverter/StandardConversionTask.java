@@ -15,17 +15,21 @@ package org.artofsolving.jodconverter;
 import static org.artofsolving.jodconverter.office.OfficeUtils.cast;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.artofsolving.jodconverter.document.DocumentFamily;
 import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.apache.commons.io.FilenameUtils;
+import org.artofsolving.jodconverter.office.HedgeableOfficeTask;
 import org.artofsolving.jodconverter.office.OfficeException;
+import org.artofsolving.jodconverter.office.OfficeTask;
 
 import com.sun.star.lang.XComponent;
 import com.sun.star.util.XRefreshable;
 
-public class StandardConversionTask extends AbstractConversionTask {
+public class StandardConversionTask extends AbstractConversionTask implements HedgeableOfficeTask {
 
     private final DocumentFormat outputFormat;
 
@@ -45,6 +49,40 @@ public class StandardConversionTask extends AbstractConversionTask {
         this.inputFormat = inputFormat;
     }
 
+    /**
+     * The copy writes to a temporary file next to the output file, so that accepting it
+     * only takes a rename.
+     */
+    public OfficeTask createHedge() throws OfficeException {
+        File outputFile = getOutputFile().getAbsoluteFile();
+        File hedgeOutputFile;
+        try {
+            hedgeOutputFile = File.createTempFile(FilenameUtils.getBaseName(outputFile.getName()) + "-hedge", "." + FilenameUtils.getExtension(outputFile.getName()),
+                    outputFile.getParentFile());
+        } catch (IOException ioException) {
+            throw new OfficeException("could not create hedge output file", ioException);
+        }
+        StandardConversionTask hedge = new StandardConversionTask(getInputFile(), hedgeOutputFile, outputFormat);
+        hedge.setDefaultLoadProperties(defaultLoadProperties);
+        hedge.setInputFormat(inputFormat);
+        return hedge;
+    }
+
+    public void acceptHedge(OfficeTask hedge) throws OfficeException {
+        File hedgeOutputFile = ((StandardConversionTask) hedge).getOutputFile();
+        File outputFile = getOutputFile();
+        if (outputFile.exists() && !outputFile.delete()) {
+            throw new OfficeException("could not replace output file: " + outputFile.getName());
+        }
+        if (!hedgeOutputFile.renameTo(outputFile)) {
+            throw new OfficeException("could not move hedge output to " + outputFile.getName());
+        }
+    }
+
+    public void discardHedge(OfficeTask hedge) {
+        ((StandardConversionTask) hedge).getOutputFile().delete();
+    }
+
     @Override
     protected void modifyDocument(XComponent document) throws OfficeException {
         XRefreshable refreshable = cast(XRefreshable.class, document);
@@ -0,0 +1,56 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Estimates how long a newly submitted task will wait in a pool's queue, from the
+ * recent service time of tasks and the current load.
+ * <p>
+ * The estimate assumes that tasks ahead are served in waves of one task per office
+ * process, and that the tasks currently running are half done on average.
+ */
+class AdmissionControl {
+
+    private static final double SMOOTHING = 0.2;
+
+    private long averageServiceTime = 0L;
+
+    public synchronized void recordServiceTime(final long serviceTime) {
+        averageServiceTime = averageServiceTime == 0L ? serviceTime : Math.round(SMOOTHING * serviceTime + (1.0 - SMOOTHING) * averageServiceTime);
+    }
+
+    /**
+     * @return the smoothed duration of recent tasks in milliseconds, or 0 if none has run yet
+     */
+    public synchronized long getAverageServiceTime() {
+        return averageServiceTime;
+    }
+
+    /**
+     * @param queuedTasks
+     *            tasks waiting in the queue
+     * @param runningTasks
+     *            tasks being executed
+     * @param instances
+     *            office processes available to the pool
+     * @return the expected wait in milliseconds before a task submitted now starts
+     */
+    public synchronized long estimateQueueWait(final int queuedTasks, final int runningTasks, final int instances) {
+        int tasksAhead = queuedTasks + runningTasks;
+        if (averageServiceTime == 0L || instances <= 0 || tasksAhead < instances) {
+            return 0L;
+        }
+        return (tasksAhead - instances) / instances * averageServiceTime + averageServiceTime / 2;
+    }
+
+}
@@ -0,0 +1,29 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * An {@link OfficeTask} that can be asked to stop while it is executing, see
+ * {@link OfficeTaskFuture#cancel(boolean)}.
+ *
+ * @since 3.01.2.00
+ */
+public interface CancellableOfficeTask extends OfficeTask {
+
+    /**
+     * Asks the task to stop as soon as possible, e.g. by closing the document it has loaded.
+     * Called from another thread than the one executing the task; must not block.
+     */
+    void cancel();
+
+}
@@ -13,6 +13,8 @@
 package org.artofsolving.jodconverter.office;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.artofsolving.jodconverter.process.LinuxProcessManager;
 import org.artofsolving.jodconverter.process.ProcessManager;
@@ -22,6 +24,10 @@ import org.artofsolving.jodconverter.util.PlatformUtils;
 public class DefaultOfficeManagerConfiguration {
 
     public static final long DEFAULT_RETRY_TIMEOUT = 120000L;
+    public static final long DEFAULT_TASK_PRIORITY_AGING_INTERVAL = 10000L;
+    public static final long DEFAULT_INSTANCE_IDLE_TIMEOUT = 300000L;
+    public static final int DEFAULT_MAX_CONCURRENT_PROCESS_STARTS = 2;
+    public static final double DEFAULT_RECYCLE_JITTER = 0.1;
 
     private File officeHome = OfficeUtils.getDefaultOfficeHome();
     private OfficeConnectionProtocol connectionProtocol = OfficeConnectionProtocol.SOCKET;
@@ -34,6 +40,31 @@ public class DefaultOfficeManagerConfiguration {
     private long taskExecutionTimeout = 120000L;  // 2 minutes
     private int maxTasksPerProcess = 200;
     private long retryTimeout = DEFAULT_RETRY_TIMEOUT;
+    private long taskPriorityAgingInterval = DEFAULT_TASK_PRIORITY_AGING_INTERVAL;
+    private final Map<String, Integer> tenantWeights = new HashMap<String, Integer>();
+    private int maxConcurrentTasksPerTenant = 0;
+    private int minInstances = 1;
+    private int maxInstances = 0;  // fixed pool of portNumbers/pipeNames
+    private long instanceIdleTimeout = DEFAULT_INSTANCE_IDLE_TIMEOUT;
+    private long scaleUpQueueWait = ProcessPoolOfficeManagerSettings.DEFAULT_SCALE_UP_QUEUE_WAIT;
+    private int spareInstances = 0;
+    private int recycleMargin = ProcessPoolOfficeManagerSettings.DEFAULT_RECYCLE_MARGIN;
+    private int maxConcurrentProcessStarts = DEFAULT_MAX_CONCURRENT_PROCESS_STARTS;
+    private double recycleJitter = DEFAULT_RECYCLE_JITTER;
+    private long crashBackoffInitialDelay = RestartGovernor.DEFAULT_CRASH_BACKOFF_INITIAL_DELAY;
+    private long crashBackoffMaxDelay = RestartGovernor.DEFAULT_CRASH_BACKOFF_MAX_DELAY;
+    private DispatchPolicy dispatchPolicy = StandardDispatchPolicy.FIFO;
+    private long affinityWait = ProcessPoolOfficeManagerSettings.DEFAULT_AFFINITY_WAIT;
+    private boolean admissionControl = false;
+    private int maxQueueLength = 0;
+    private boolean lazyStart = false;
+    private boolean prewarm = false;
+    private RecyclingPolicy recyclingPolicy = null;
+    private boolean callerThreadExecution = false;
+    private long shortestJobFirstMaxWait = 0L;
+    private int hedgePercentile = 0;
+    private int quarantineStrikes = 0;
+    private int processFailureRetries = 0;
 
     private ProcessManager processManager = null;  // lazily initialised
 
@@ -151,6 +182,383 @@ public class DefaultOfficeManagerConfiguration {
         return this;
     }
 
+    /**
+     * Sets how long a queued task waits before it is promoted by one {@link OfficeTaskPriority}
+     * level, so that batch work still gets through when interactive tasks keep arriving.
+     * A value of zero or less disables aging.
+     * <p>
+     * Defaults to 10 seconds.
+     *
+     * @param taskPriorityAgingInterval in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setTaskPriorityAgingInterval(final long taskPriorityAgingInterval) {
+        this.taskPriorityAgingInterval = taskPriorityAgingInterval;
+        return this;
+    }
+
+    /**
+     * Sets the relative share of the office processes that a tenant (see
+     * {@link OfficeTaskOptions#setTenant(String)}) gets when several tenants have tasks
+     * queued. Tenants without a configured weight have weight 1.
+     *
+     * @param tenant
+     * @param weight
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setTenantWeight(final String tenant, final int weight) throws NullPointerException, IllegalArgumentException {
+        checkArgumentNotNull("tenant", tenant);
+        checkArgument("weight", weight > 0, "must be greater than 0");
+        tenantWeights.put(tenant, weight);
+        return this;
+    }
+
+    /**
+     * Limits how many office processes a single tenant may use at the same time; further
+     * tasks of that tenant stay queued even when other processes are idle.
+     * <p>
+     * Defaults to 0, meaning no limit.
+     *
+     * @param maxConcurrentTasksPerTenant
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setMaxConcurrentTasksPerTenant(final int maxConcurrentTasksPerTenant) {
+        this.maxConcurrentTasksPerTenant = maxConcurrentTasksPerTenant;
+        return this;
+    }
+
+    /**
+     * Makes the pool elastic, with up to <code>maxInstances</code> office processes
+     * started on demand. Ports (or pipe names) are allocated automatically, counting up
+     * from the first configured port number (or suffixing the first configured pipe name).
+     * <p>
+     * Defaults to 0, meaning a fixed pool with one process per configured port number or pipe name.
+     *
+     * @param maxInstances
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setMaxInstances(final int maxInstances) {
+        this.maxInstances = maxInstances;
+        return this;
+    }
+
+    /**
+     * Sets how many office processes an elastic pool (see {@link #setMaxInstances(int)})
+     * keeps running when idle. Use 0 to stop all processes when there is no work.
+     * <p>
+     * Defaults to 1.
+     *
+     * @param minInstances
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setMinInstances(final int minInstances) throws IllegalArgumentException {
+        checkArgument("minInstances", minInstances >= 0, "must not be negative");
+        this.minInstances = minInstances;
+        return this;
+    }
+
+    /**
+     * Sets how long an office process of an elastic pool may stay idle before it is stopped.
+     * <p>
+     * Defaults to 5 minutes.
+     *
+     * @param instanceIdleTimeout in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setInstanceIdleTimeout(final long instanceIdleTimeout) {
+        this.instanceIdleTimeout = instanceIdleTimeout;
+        return this;
+    }
+
+    /**
+     * Sets how long a task may wait in the queue before an elastic pool starts another
+     * office process.
+     * <p>
+     * Defaults to 1 second.
+     *
+     * @param scaleUpQueueWait in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setScaleUpQueueWait(final long scaleUpQueueWait) {
+        this.scaleUpQueueWait = scaleUpQueueWait;
+        return this;
+    }
+
+    /**
+     * Reserves additional office process slots (on the ports following the highest
+     * configured one, or on suffixed pipe names) that are only used to warm up a
+     * replacement when a process is recycled after <code>maxTasksPerProcess</code> tasks.
+     * The old process keeps serving until its replacement is connected.
+     * <p>
+     * Defaults to 0; a process is then restarted in the background, outside of any task,
+     * unless an elastic pool has a free slot.
+     *
+     * @param spareInstances
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setSpareInstances(final int spareInstances) throws IllegalArgumentException {
+        checkArgument("spareInstances", spareInstances >= 0, "must not be negative");
+        this.spareInstances = spareInstances;
+        return this;
+    }
+
+    /**
+     * Sets how many tasks before reaching <code>maxTasksPerProcess</code> the replacement
+     * of a process is started.
+     * <p>
+     * Defaults to 10.
+     *
+     * @param recycleMargin
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setRecycleMargin(final int recycleMargin) {
+        this.recycleMargin = recycleMargin;
+        return this;
+    }
+
+    /**
+     * Limits how many office processes of the pool may be starting at the same time, e.g.
+     * when several of them are restarted after crashes. Use 0 for no limit.
+     * <p>
+     * Defaults to 2.
+     *
+     * @param maxConcurrentProcessStarts
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setMaxConcurrentProcessStarts(final int maxConcurrentProcessStarts) {
+        this.maxConcurrentProcessStarts = maxConcurrentProcessStarts;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of <code>maxTasksPerProcess</code> by which each process lifetime is
+     * randomly shortened, so that processes started together are not all recycled at the
+     * same time. Use 0 to recycle exactly after <code>maxTasksPerProcess</code> tasks.
+     * <p>
+     * Defaults to 0.1.
+     *
+     * @param recycleJitter between 0 and 1
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setRecycleJitter(final double recycleJitter) throws IllegalArgumentException {
+        checkArgument("recycleJitter", recycleJitter >= 0.0 && recycleJitter <= 1.0, "must be between 0 and 1");
+        this.recycleJitter = recycleJitter;
+        return this;
+    }
+
+    /**
+     * Sets the exponential backoff applied when an office process keeps crashing shortly
+     * after being restarted: the first crash restarts it right away, the second waits
+     * <code>initialDelay</code>, and every further one doubles the delay up to <code>maxDelay</code>.
+     * <p>
+     * Defaults to 1 second and 1 minute.
+     *
+     * @param initialDelay in milliseconds; 0 disables the backoff
+     * @param maxDelay in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setCrashRestartBackoff(final long initialDelay, final long maxDelay) {
+        this.crashBackoffInitialDelay = initialDelay;
+        this.crashBackoffMaxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Sets how the pool chooses among idle office processes, see {@link StandardDispatchPolicy}
+     * for the built-in policies.
+     * <p>
+     * Defaults to {@link StandardDispatchPolicy#FIFO}.
+     *
+     * @param dispatchPolicy
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setDispatchPolicy(final DispatchPolicy dispatchPolicy) throws NullPointerException {
+        checkArgumentNotNull("dispatchPolicy", dispatchPolicy);
+        this.dispatchPolicy = dispatchPolicy;
+        return this;
+    }
+
+    /**
+     * Sets how long a task waits for a busy office process that last converted a document
+     * of the same family (text, spreadsheet, ...) when only processes that handled another
+     * family are idle. Zero hands the task to any idle process straight away; a process of
+     * the same family is still preferred when one is idle. Other tasks are dispatched while
+     * a task waits, and at most one task waits per busy process.
+     * <p>
+     * Defaults to 0.
+     *
+     * @param affinityWait in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setAffinityWait(final long affinityWait) {
+        checkArgument("affinityWait", affinityWait >= 0, "must not be negative");
+        this.affinityWait = affinityWait;
+        return this;
+    }
+
+    /**
+     * Refuses tasks at submission with an {@link OfficeTaskRejectedException} when the
+     * expected queue wait, estimated from recent task durations and the current load,
+     * exceeds the task queue timeout or the task's deadline (see
+     * {@link OfficeTaskOptions#setDeadline(long)}), rather than failing them only once the
+     * timeout has elapsed.
+     * <p>
+     * Defaults to false.
+     *
+     * @param admissionControl
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setAdmissionControl(final boolean admissionControl) {
+        this.admissionControl = admissionControl;
+        return this;
+    }
+
+    /**
+     * Sets how many tasks may wait in the queue; further tasks are refused with an
+     * {@link OfficeTaskRejectedException}. Zero for no limit.
+     * <p>
+     * Defaults to 0.
+     *
+     * @param maxQueueLength
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setMaxQueueLength(final int maxQueueLength) {
+        checkArgument("maxQueueLength", maxQueueLength >= 0, "must not be negative");
+        this.maxQueueLength = maxQueueLength;
+        return this;
+    }
+
+    /**
+     * Makes {@link OfficeManager#start()} return without starting any office process.
+     * Processes are started as tasks arrive instead, so that the startup time and memory
+     * are only spent once conversions are actually requested. Processes started this way
+     * keep running unless the pool is elastic and they become idle.
+     * <p>
+     * Defaults to false.
+     *
+     * @param lazyStart
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setLazyStart(final boolean lazyStart) {
+        this.lazyStart = lazyStart;
+        return this;
+    }
+
+    /**
+     * With lazy start, starts one office process in the background straight away so that
+     * the first conversion does not wait for it.
+     * <p>
+     * Defaults to false.
+     *
+     * @param prewarm
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setPrewarm(final boolean prewarm) {
+        this.prewarm = prewarm;
+        return this;
+    }
+
+    /**
+     * Recycles office processes when the given policy says so, in addition to after
+     * <code>maxTasksPerProcess</code> tasks; see {@link RecyclingPolicies} for policies based
+     * on memory use, latency drift and age.
+     * <p>
+     * Defaults to none.
+     *
+     * @param recyclingPolicy
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setRecyclingPolicy(final RecyclingPolicy recyclingPolicy) {
+        this.recyclingPolicy = recyclingPolicy;
+        return this;
+    }
+
+    /**
+     * Runs each task directly on the thread that called {@link OfficeManager#execute(OfficeTask)}
+     * or waits in {@link OfficeTaskFuture#join()}, as a synchronous conversion does, or on a
+     * pool thread when no thread waits for a submitted task, rather than handing it to a
+     * dedicated thread per office process, and enforces task execution timeouts with a
+     * single watchdog thread for the whole pool. This saves one thread per office process
+     * and a thread handoff per task.
+     * <p>
+     * Defaults to false.
+     *
+     * @param callerThreadExecution
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setCallerThreadExecution(final boolean callerThreadExecution) {
+        this.callerThreadExecution = callerThreadExecution;
+        return this;
+    }
+
+    /**
+     * Serves queued tasks of the same priority cheapest first rather than in submission
+     * order, using the cost estimated from the input file size and document family (see
+     * {@link OfficeTaskOptions#setEstimatedCost(long)}). A task that has waited for the
+     * given time is served next regardless of its cost, so large documents still finish.
+     * <p>
+     * Defaults to 0, which keeps submission order.
+     *
+     * @param shortestJobFirstMaxWait in milliseconds
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setShortestJobFirst(final long shortestJobFirstMaxWait) {
+        checkArgument("shortestJobFirstMaxWait", shortestJobFirstMaxWait >= 0, "must not be negative");
+        this.shortestJobFirstMaxWait = shortestJobFirstMaxWait;
+        return this;
+    }
+
+    /**
+     * Starts a conversion a second time on an idle office process when it runs longer than
+     * the given percentile of the recent durations of similar conversions (see
+     * {@link OfficeTaskOptions#setCostKey(String)}), and keeps whichever run finishes first.
+     * Trades spare capacity for a shorter tail latency; queued tasks always take precedence
+     * over hedges.
+     * <p>
+     * Defaults to 0, which disables hedging.
+     *
+     * @param hedgePercentile between 0 and 100, e.g. 95
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setHedgedExecution(final int hedgePercentile) {
+        checkArgument("hedgePercentile", hedgePercentile >= 0 && hedgePercentile <= 100, "must be between 0 and 100");
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
+
+    /**
+     * Refuses documents that have made an office process crash or exceed the task execution
+     * timeout this many times, recognising them by a hash of their content (see
+     * {@link FingerprintedOfficeTask}). A successful conversion clears a document's strikes.
+     * <p>
+     * Defaults to 0, which disables the quarantine.
+     *
+     * @param quarantineStrikes
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setQuarantineStrikes(final int quarantineStrikes) {
+        checkArgument("quarantineStrikes", quarantineStrikes >= 0, "must not be negative");
+        this.quarantineStrikes = quarantineStrikes;
+        return this;
+    }
+
+    /**
+     * Retries an idempotent task (see {@link OfficeTaskOptions#setIdempotent(boolean)}) up to
+     * this many times when its office process is lost while running it, ahead of the queue
+     * and on another process if one is idle. Tasks that exceed the task execution timeout
+     * are not retried, as the document itself is the likely cause.
+     * <p>
+     * Defaults to 0, which passes the failure on to the caller.
+     *
+     * @param processFailureRetries
+     * @return
+     */
+    public DefaultOfficeManagerConfiguration setProcessFailureRetries(final int processFailureRetries) {
+        checkArgument("processFailureRetries", processFailureRetries >= 0, "must not be negative");
+        this.processFailureRetries = processFailureRetries;
+        return this;
+    }
+
     public OfficeManager buildOfficeManager() throws IllegalStateException {
         if (officeHome == null) {
             throw new IllegalStateException("officeHome not set and could not be auto-detected");
@@ -170,12 +578,54 @@ public class DefaultOfficeManagerConfiguration {
             processManager = findBestProcessManager();
         }
 
-        int numInstances = connectionProtocol == OfficeConnectionProtocol.PIPE ? pipeNames.length : portNumbers.length;
-        UnoUrl[] unoUrls = new UnoUrl[numInstances];
-        for (int i = 0; i < numInstances; i++) {
-            unoUrls[i] = (connectionProtocol == OfficeConnectionProtocol.PIPE) ? UnoUrl.pipe(pipeNames[i]) : UnoUrl.socket(portNumbers[i]);
+        ProcessPoolOfficeManagerSettings poolSettings = new ProcessPoolOfficeManagerSettings();
+        poolSettings.setTaskQueueTimeout(taskQueueTimeout);
+        poolSettings.setTaskPriorityAgingInterval(taskPriorityAgingInterval);
+        poolSettings.setTenantWeights(tenantWeights);
+        poolSettings.setMaxConcurrentTasksPerTenant(maxConcurrentTasksPerTenant);
+        poolSettings.setSpareInstances(spareInstances);
+        poolSettings.setRecycleMargin(recycleMargin);
+        poolSettings.setDispatchPolicy(dispatchPolicy);
+        poolSettings.setAffinityWait(affinityWait);
+        poolSettings.setAdmissionControl(admissionControl);
+        poolSettings.setMaxQueueLength(maxQueueLength);
+        poolSettings.setLazyStart(lazyStart);
+        poolSettings.setPrewarm(prewarm);
+        poolSettings.setRecyclingPolicy(recyclingPolicy);
+        poolSettings.setCallerThreadExecution(callerThreadExecution);
+        poolSettings.setShortestJobFirstMaxWait(shortestJobFirstMaxWait);
+        poolSettings.setHedgePercentile(hedgePercentile);
+        poolSettings.setQuarantineStrikes(quarantineStrikes);
+        poolSettings.setProcessFailureRetries(processFailureRetries);
+        poolSettings.setRestartGovernor(new RestartGovernor(maxConcurrentProcessStarts, recycleJitter, crashBackoffInitialDelay, crashBackoffMaxDelay));
+
+        UnoUrl[] unoUrls;
+        if (maxInstances > 0) {
+            if (minInstances > maxInstances) {
+                throw new IllegalStateException("minInstances (" + minInstances + ") is greater than maxInstances (" + maxInstances + ")");
+            }
+            unoUrls = new UnoUrl[maxInstances + spareInstances];
+            for (int i = 0; i < unoUrls.length; i++) {
+                unoUrls[i] = (connectionProtocol == OfficeConnectionProtocol.PIPE) ? UnoUrl.pipe(pipeNames[0] + "_" + i) : UnoUrl.socket(portNumbers[0] + i);
+            }
+            poolSettings.setMinInstances(minInstances);
+            poolSettings.setInstanceIdleTimeout(instanceIdleTimeout);
+            poolSettings.setScaleUpQueueWait(scaleUpQueueWait);
+        } else {
+            int numInstances = connectionProtocol == OfficeConnectionProtocol.PIPE ? pipeNames.length : portNumbers.length;
+            int highestPortNumber = 0;
+            for (int portNumber : portNumbers) {
+                highestPortNumber = Math.max(highestPortNumber, portNumber);
+            }
+            unoUrls = new UnoUrl[numInstances + spareInstances];
+            for (int i = 0; i < numInstances; i++) {
+                unoUrls[i] = (connectionProtocol == OfficeConnectionProtocol.PIPE) ? UnoUrl.pipe(pipeNames[i]) : UnoUrl.socket(portNumbers[i]);
+            }
+            for (int i = 0; i < spareInstances; i++) {
+                unoUrls[numInstances + i] = (connectionProtocol == OfficeConnectionProtocol.PIPE) ? UnoUrl.pipe(pipeNames[0] + "_spare" + i) : UnoUrl.socket(highestPortNumber + 1 + i);
+            }
         }
-        return new ProcessPoolOfficeManager(officeHome, unoUrls, runAsArgs, templateProfileDir, workDir, retryTimeout, taskQueueTimeout, taskExecutionTimeout, maxTasksPerProcess, processManager, false);
+        return new ProcessPoolOfficeManager(officeHome, unoUrls, runAsArgs, templateProfileDir, workDir, retryTimeout, taskExecutionTimeout, maxTasksPerProcess, processManager, false, poolSettings);
     }
 
     private ProcessManager findBestProcessManager() {
@@ -0,0 +1,35 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.List;
+
+/**
+ * Chooses which idle office process of a pool executes the next task.
+ * <p>
+ * Implementations are called by a single dispatcher thread while the pool's idle list is
+ * locked, so they should be quick and must not block.
+ *
+ * @see StandardDispatchPolicy
+ * @since 3.01.2.00
+ */
+public interface DispatchPolicy {
+
+    /**
+     * @param idleInstances
+     *            the idle office processes, least recently used first; never empty
+     * @return one of the given instances
+     */
+    <T extends OfficeInstanceMetrics> T select(List<T> idleInstances);
+
+}
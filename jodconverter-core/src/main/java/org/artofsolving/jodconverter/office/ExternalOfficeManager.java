@@ -13,6 +13,8 @@
 package org.artofsolving.jodconverter.office;
 
 import java.net.ConnectException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * {@link OfficeManager} implementation that connects to an external Office process.
@@ -34,6 +36,7 @@ class ExternalOfficeManager implements OfficeManager {
 	private final OfficeConnection connection;
 	private final OfficeVersion officeVersion;
 	private final boolean connectOnStart;
+	private ExecutorService taskExecutor;
 
 	/**
 	 * @param unoUrl
@@ -48,16 +51,21 @@ class ExternalOfficeManager implements OfficeManager {
 	}
 
 	@Override
-    public void start() throws OfficeException {
+    public synchronized void start() throws OfficeException {
 		if (connectOnStart) {
 			synchronized (connection) {
 				connect();
 			}
 		}
+		taskExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("ExternalOfficeTaskThread"));
 	}
 
 	@Override
-    public void stop() {
+    public synchronized void stop() {
+		if (taskExecutor != null) {
+			taskExecutor.shutdownNow();
+			taskExecutor = null;
+		}
 		synchronized (connection) {
 			if (connection.isConnected()) {
 				connection.disconnect();
@@ -75,6 +83,54 @@ class ExternalOfficeManager implements OfficeManager {
 		}
 	}
 
+	@Override
+    public OfficeTaskFuture submit(final OfficeTask task) throws OfficeException {
+		return submit(task, new OfficeTaskOptions());
+	}
+
+	/**
+	 * Tasks are executed one at a time in submission order; the options are ignored.
+	 */
+	@Override
+    public synchronized OfficeTaskFuture submit(final OfficeTask task, final OfficeTaskOptions options) throws OfficeException {
+		if (taskExecutor == null) {
+			throw new IllegalStateException("this OfficeManager is currently stopped");
+		}
+		final OfficeTaskFuture future = new OfficeTaskFuture(task, options);
+		taskExecutor.execute(new Runnable() {
+			@Override
+            public void run() {
+				future.run(ExternalOfficeManager.this);
+			}
+		});
+		return future;
+	}
+
+	@Override
+	public OfficeLease lease(final long leaseTime) throws OfficeException {
+		return lease(leaseTime, new OfficeTaskOptions());
+	}
+
+	/**
+	 * There is only one connection, so the lease shares it with other tasks rather than
+	 * reserving it; the options are ignored. The lease still expires after the lease time,
+	 * cancelling a task that is still running.
+	 */
+	@Override
+	public OfficeLease lease(final long leaseTime, final OfficeTaskOptions options) throws OfficeException {
+		OfficeLease lease = new OfficeLease(leaseTime);
+		lease.grant(this);
+		return lease;
+	}
+
+	/**
+	 * Task durations are not tracked, so nothing is known in advance.
+	 */
+	@Override
+	public OfficeTaskEstimate estimate(final OfficeTaskOptions options) {
+		return new OfficeTaskEstimate(0L, 0L);
+	}
+
 	private void connect() {
 		try {
 			connection.connect();
@@ -12,18 +12,36 @@
 //
 package org.artofsolving.jodconverter.office;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ExternalOfficeManagerConfiguration {
 
     private OfficeConnectionProtocol connectionProtocol = OfficeConnectionProtocol.SOCKET;
+    private String host = "127.0.0.1";
     private int portNumber = 2002;
     private String pipeName = "office";
     private boolean connectOnStart = true;
+    private final List<UnoUrl> endpoints = new ArrayList<UnoUrl>();
+    private long taskQueueTimeout = 30000L;  // 30 seconds
+    private long healthCheckInterval = 5000L;  // 5 seconds
+    private int maxConnectionsPerEndpoint = 1;
 
     public ExternalOfficeManagerConfiguration setConnectionProtocol(OfficeConnectionProtocol connectionProtocol) {
         this.connectionProtocol = connectionProtocol;
         return this;
     }
 
+    /**
+     * Defaults to 127.0.0.1.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration setHost(String host) {
+        this.host = host;
+        return this;
+    }
+
     public ExternalOfficeManagerConfiguration setPortNumber(int portNumber) {
         this.portNumber = portNumber;
         return this;
@@ -39,8 +57,74 @@ public class ExternalOfficeManagerConfiguration {
         return this;
     }
 
+    /**
+     * Adds an Office process listening on the given socket to a pool of external processes
+     * that tasks are balanced across. Once endpoints are added, the protocol, host, port
+     * number and pipe name settings are ignored.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration addEndpoint(String host, int portNumber) {
+        endpoints.add(UnoUrl.socket(host, portNumber));
+        return this;
+    }
+
+    /**
+     * Adds an Office process listening on the given named pipe to a pool of external
+     * processes, see {@link #addEndpoint(String, int)}.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration addPipeEndpoint(String pipeName) {
+        endpoints.add(UnoUrl.pipe(pipeName));
+        return this;
+    }
+
+    /**
+     * How long a task waits for a free connection to a pool of external processes.
+     * Defaults to 30 seconds.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration setTaskQueueTimeout(long taskQueueTimeout) {
+        this.taskQueueTimeout = taskQueueTimeout;
+        return this;
+    }
+
+    /**
+     * How often unreachable endpoints of a pool of external processes are tried again.
+     * Defaults to 5 seconds.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration setHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+        return this;
+    }
+
+    /**
+     * How many tasks each external Office process is given at a time, each over a
+     * connection of its own. With more than one, tasks are executed concurrently even
+     * against a single Office process. Defaults to 1.
+     *
+     * @since 3.01.2.00
+     */
+    public ExternalOfficeManagerConfiguration setMaxConnectionsPerEndpoint(int maxConnectionsPerEndpoint) {
+        if (maxConnectionsPerEndpoint < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerEndpoint must be at least 1");
+        }
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        return this;
+    }
+
     public OfficeManager buildOfficeManager() {
-        UnoUrl unoUrl = connectionProtocol == OfficeConnectionProtocol.SOCKET ? UnoUrl.socket(portNumber) : UnoUrl.pipe(pipeName);
+        UnoUrl unoUrl = connectionProtocol == OfficeConnectionProtocol.SOCKET ? UnoUrl.socket(host, portNumber) : UnoUrl.pipe(pipeName);
+        if (!endpoints.isEmpty()) {
+            return new ExternalOfficePoolManager(endpoints.toArray(new UnoUrl[endpoints.size()]), maxConnectionsPerEndpoint, connectOnStart, taskQueueTimeout,
+                    healthCheckInterval);
+        } else if (maxConnectionsPerEndpoint > 1) {
+            return new ExternalOfficePoolManager(new UnoUrl[] { unoUrl }, maxConnectionsPerEndpoint, connectOnStart, taskQueueTimeout, healthCheckInterval);
+        }
         return new ExternalOfficeManager(unoUrl, connectOnStart);
     }
 
@@ -0,0 +1,370 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link OfficeManager} implementation that balances tasks across several external Office
+ * processes, e.g. running on dedicated hosts or in sidecar containers.
+ * <p>
+ * Each endpoint is given up to <code>maxConnectionsPerEndpoint</code> tasks at a time,
+ * each over a connection (a URP bridge) of its own, and a task goes to the endpoint with
+ * the fewest tasks running. Connections are only opened when needed, and are checked
+ * with a round trip to the Office process before every task; a broken connection is
+ * opened again right away. An endpoint that cannot be reached is left out until a
+ * background health check, run every <code>healthCheckInterval</code> milliseconds,
+ * manages to connect to it again. A task waits up to <code>taskQueueTimeout</code>
+ * milliseconds for a free connection, counted from its submission.
+ * <p>
+ * Like {@link ExternalOfficeManager}, this implementation does not manage the Office
+ * processes themselves, and does not know their version.
+ */
+class ExternalOfficePoolManager implements OfficeManager {
+
+    private static class Endpoint {
+        private final UnoUrl unoUrl;
+        private final List<OfficeConnection> idleConnections = new ArrayList<OfficeConnection>();
+        private int busyConnections = 0;
+        private boolean reachable = true;
+
+        public Endpoint(final UnoUrl unoUrl) {
+            this.unoUrl = unoUrl;
+        }
+    }
+
+    private final List<Endpoint> endpoints = new ArrayList<Endpoint>();
+    private final Map<OfficeConnection, Endpoint> connectionEndpoints = new HashMap<OfficeConnection, Endpoint>();
+    private final OfficeVersion officeVersion = new OfficeVersion();
+    private final boolean connectOnStart;
+    private final long taskQueueTimeout;
+    private final long healthCheckInterval;
+
+    // guards the endpoints' connections and state
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionAvailable = lock.newCondition();
+
+    private ExecutorService taskExecutor;
+    private ScheduledExecutorService healthChecker;
+    private volatile boolean running = false;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getName());
+
+    /**
+     * @param unoUrls
+     *            one per external Office process
+     * @param maxConnectionsPerEndpoint
+     *            how many tasks each Office process is given at a time
+     * @param connectOnStart
+     *            should every endpoint be connected to on {@link #start()}? If <em>false</em>,
+     *            an endpoint is connected to the first time a task is given to it.
+     * @param taskQueueTimeout
+     * @param healthCheckInterval
+     */
+    public ExternalOfficePoolManager(final UnoUrl[] unoUrls, final int maxConnectionsPerEndpoint, final boolean connectOnStart, final long taskQueueTimeout,
+            final long healthCheckInterval) {
+        for (UnoUrl unoUrl : unoUrls) {
+            Endpoint endpoint = new Endpoint(unoUrl);
+            for (int i = 0; i < maxConnectionsPerEndpoint; i++) {
+                OfficeConnection connection = new OfficeConnection(unoUrl);
+                endpoint.idleConnections.add(connection);
+                connectionEndpoints.put(connection, endpoint);
+            }
+            endpoints.add(endpoint);
+        }
+        this.connectOnStart = connectOnStart;
+        this.taskQueueTimeout = taskQueueTimeout;
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @Override
+    public synchronized void start() throws OfficeException {
+        boolean anyReachable = false;
+        for (Endpoint endpoint : endpoints) {
+            endpoint.reachable = !connectOnStart || connect(endpoint.idleConnections.get(0));
+            anyReachable |= endpoint.reachable;
+        }
+        if (!anyReachable) {
+            throw new OfficeException("could not connect to any external office process");
+        }
+        taskExecutor = Executors.newFixedThreadPool(connectionEndpoints.size(), new NamedThreadFactory("ExternalOfficeTaskThread"));
+        healthChecker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ExternalOfficeHealthCheckThread"));
+        healthChecker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkUnreachableEndpoints();
+            }
+        }, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        if (taskExecutor != null) {
+            taskExecutor.shutdownNow();
+        }
+        for (OfficeConnection connection : connectionEndpoints.keySet()) {
+            if (connection.isConnected()) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Override
+    public void execute(final OfficeTask task) throws OfficeException {
+        execute(task, System.currentTimeMillis() + taskQueueTimeout);
+    }
+
+    /**
+     * @param queueDeadline
+     *            by which the task must have a connection
+     */
+    void execute(final OfficeTask task, final long queueDeadline) throws OfficeException {
+        OfficeConnection connection = acquireConnection(queueDeadline);
+        try {
+            task.execute(connection);
+        } finally {
+            releaseConnection(connection, true);
+        }
+    }
+
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task) throws OfficeException {
+        return submit(task, new OfficeTaskOptions());
+    }
+
+    /**
+     * Tasks are executed in submission order as connections become free; the options are ignored.
+     */
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task, final OfficeTaskOptions options) throws OfficeException {
+        if (!running) {
+            throw new IllegalStateException("this OfficeManager is currently stopped");
+        }
+        final OfficeTaskFuture future = new OfficeTaskFuture(task, options);
+        // the time spent waiting for a task thread counts towards the queue timeout
+        future.setQueueDeadline(future.getSubmitTime() + taskQueueTimeout);
+        taskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                future.run(ExternalOfficePoolManager.this);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public OfficeLease lease(final long leaseTime) throws OfficeException {
+        return lease(leaseTime, new OfficeTaskOptions());
+    }
+
+    /**
+     * The lease does not reserve an endpoint: its tasks go to whichever endpoint is free,
+     * like any other task; the options are ignored. The lease still expires after the lease
+     * time, cancelling a task that is still running.
+     */
+    @Override
+    public OfficeLease lease(final long leaseTime, final OfficeTaskOptions options) throws OfficeException {
+        OfficeLease lease = new OfficeLease(leaseTime);
+        lease.grant(this);
+        return lease;
+    }
+
+    /**
+     * Task durations are not tracked, so nothing is known in advance.
+     */
+    @Override
+    public OfficeTaskEstimate estimate(final OfficeTaskOptions options) {
+        return new OfficeTaskEstimate(0L, 0L);
+    }
+
+    /**
+     * Takes a free connection of the least busy reachable endpoint, and makes sure it works.
+     *
+     * @param deadline
+     *            by which the task must have a connection
+     */
+    private OfficeConnection acquireConnection(final long deadline) throws OfficeException {
+        if (System.currentTimeMillis() > deadline) {
+            throw new OfficeException("no external office process available");
+        }
+        while (true) {
+            OfficeConnection connection = takeConnection(deadline);
+            if (validate(connection)) {
+                return connection;
+            }
+            releaseConnection(connection, false);
+        }
+    }
+
+    private OfficeConnection takeConnection(final long deadline) throws OfficeException {
+        lock.lock();
+        try {
+            while (true) {
+                Endpoint leastBusy = null;
+                for (Endpoint endpoint : endpoints) {
+                    if (endpoint.reachable && !endpoint.idleConnections.isEmpty() && (leastBusy == null || endpoint.busyConnections < leastBusy.busyConnections)) {
+                        leastBusy = endpoint;
+                    }
+                }
+                if (leastBusy != null) {
+                    leastBusy.busyConnections++;
+                    return leastBusy.idleConnections.remove(indexOfConnected(leastBusy.idleConnections));
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0L) {
+                    throw new OfficeException("no external office process available");
+                }
+                connectionAvailable.await(remaining, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted", interruptedException);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the index of an open connection, so that connections are only opened when all open ones are busy
+     */
+    private static int indexOfConnected(final List<OfficeConnection> connections) {
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            if (connections.get(i).isConnected()) {
+                return i;
+            }
+        }
+        return connections.size() - 1;
+    }
+
+    /**
+     * @param reachable
+     *            <code>false</code> if the endpoint could not be connected to
+     */
+    private void releaseConnection(final OfficeConnection connection, final boolean reachable) {
+        Endpoint endpoint = connectionEndpoints.get(connection);
+        lock.lock();
+        try {
+            endpoint.busyConnections--;
+            endpoint.idleConnections.add(connection);
+            if (!reachable && endpoint.reachable) {
+                logger.warn(String.format("external office process '%s' cannot be reached; trying again in the background", endpoint.unoUrl));
+                endpoint.reachable = false;
+            }
+            connectionAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that the connection still works with a round trip to the Office process, and
+     * opens it (again) if it does not.
+     *
+     * @return <code>false</code> if the endpoint cannot be reached
+     */
+    private boolean validate(final OfficeConnection connection) {
+        if (connection.isConnected()) {
+            try {
+                if (connection.getService(OfficeUtils.SERVICE_DESKTOP) != null) {
+                    return true;
+                }
+            } catch (RuntimeException runtimeException) {
+                logger.debug("connection failed validation", runtimeException);
+            }
+            logger.info(String.format("connection to '%s' is broken; reconnecting", connection.getUnoUrl()));
+            try {
+                connection.disconnect();
+            } catch (RuntimeException runtimeException) {
+                // already gone
+            }
+        }
+        return connect(connection);
+    }
+
+    private void checkUnreachableEndpoints() {
+        List<OfficeConnection> probes = new ArrayList<OfficeConnection>();
+        lock.lock();
+        try {
+            for (Endpoint endpoint : endpoints) {
+                if (!endpoint.reachable && !endpoint.idleConnections.isEmpty()) {
+                    endpoint.busyConnections++;
+                    probes.add(endpoint.idleConnections.remove(endpoint.idleConnections.size() - 1));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (OfficeConnection probe : probes) {
+            boolean reachable = running && validate(probe);
+            Endpoint endpoint = connectionEndpoints.get(probe);
+            lock.lock();
+            try {
+                if (reachable) {
+                    logger.info(String.format("external office process '%s' is available again", endpoint.unoUrl));
+                    endpoint.reachable = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            releaseConnection(probe, reachable);
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the endpoint cannot be reached
+     */
+    private boolean connect(final OfficeConnection connection) {
+        try {
+            connection.connect();
+            return true;
+        } catch (ConnectException connectException) {
+            logger.debug("could not connect to external office process", connectException);
+        } catch (OfficeException officeException) {
+            logger.warn("could not connect to external office process", officeException);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The external Office processes are not launched by this manager, so their version is
+     * not detected; like {@link ExternalOfficeManager}, this returns an unknown version
+     * (see {@link OfficeVersion#isKnown()}).
+     */
+    @Override
+    public OfficeVersion getVersion() {
+        return officeVersion;
+    }
+
+}
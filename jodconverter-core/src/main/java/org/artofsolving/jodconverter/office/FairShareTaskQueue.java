@@ -0,0 +1,347 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of pending tasks shared fairly between tenants.
+ * <p>
+ * Every tenant (see {@link OfficeTaskOptions#setTenant(String)}) has its own
+ * {@link PriorityTaskQueue}. Tenants take turns by weighted fair queuing: each dispatched
+ * task advances its tenant's virtual time by the inverse of the tenant's weight, and the
+ * tenant with the lowest virtual time goes next. A tenant that already has
+ * <code>maxConcurrentTasksPerTenant</code> tasks running is skipped until one of them finishes.
+ * <p>
+ * The queue holds at most <code>maxSize</code> tasks in total; further tasks are refused.
+ */
+class FairShareTaskQueue {
+
+    private static final long STRIDE = 1L << 20;
+    private static final String DEFAULT_TENANT = "";
+
+    private static class TenantQueue {
+        private final String tenant;
+        private final PriorityTaskQueue queue;
+        private final long stride;
+        private long pass;
+        private int runningTasks = 0;
+
+        public TenantQueue(final String tenant, final long agingInterval, final long shortestJobFirstMaxWait, final int weight, final long pass) {
+            this.tenant = tenant;
+            queue = new PriorityTaskQueue(agingInterval, shortestJobFirstMaxWait);
+            stride = STRIDE / weight;
+            this.pass = pass;
+        }
+    }
+
+    private final long agingInterval;
+    private final long shortestJobFirstMaxWait;
+    private final Map<String, Integer> tenantWeights;
+    private final int maxConcurrentTasksPerTenant;
+    private final int maxSize;
+    private final Map<String, TenantQueue> tenants = new HashMap<String, TenantQueue>();
+    private long virtualTime = 0L;
+    private int size = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dispatchable = lock.newCondition();
+
+    /**
+     * @param agingInterval
+     *            see {@link PriorityTaskQueue}
+     * @param tenantWeights
+     *            relative share of each tenant; tenants not listed have weight 1
+     * @param maxConcurrentTasksPerTenant
+     *            zero or less for no limit
+     */
+    public FairShareTaskQueue(final long agingInterval, final Map<String, Integer> tenantWeights, final int maxConcurrentTasksPerTenant) {
+        this(agingInterval, tenantWeights, maxConcurrentTasksPerTenant, 0, 0L);
+    }
+
+    /**
+     * @param maxSize
+     *            zero or less for no limit
+     * @param shortestJobFirstMaxWait
+     *            see {@link PriorityTaskQueue}
+     */
+    public FairShareTaskQueue(final long agingInterval, final Map<String, Integer> tenantWeights, final int maxConcurrentTasksPerTenant, final int maxSize,
+            final long shortestJobFirstMaxWait) {
+        this.agingInterval = agingInterval;
+        this.shortestJobFirstMaxWait = shortestJobFirstMaxWait;
+        this.tenantWeights = new HashMap<String, Integer>(tenantWeights);
+        this.maxConcurrentTasksPerTenant = maxConcurrentTasksPerTenant;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return <code>false</code> if the queue is full
+     */
+    public boolean add(final OfficeTaskFuture future) {
+        lock.lock();
+        try {
+            if (maxSize > 0 && size >= maxSize) {
+                return false;
+            }
+            getTenantQueue(future).queue.add(future);
+            size++;
+            dispatchable.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a task that has been dispatched before ahead of the others of its tenant and
+     * priority, regardless of the maximum size.
+     */
+    public void addFirst(final OfficeTaskFuture future) {
+        lock.lock();
+        try {
+            getTenantQueue(future).queue.addFirst(future);
+            size++;
+            dispatchable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TenantQueue getTenantQueue(final OfficeTaskFuture future) {
+        String tenant = getTenant(future);
+        TenantQueue tenantQueue = tenants.get(tenant);
+        if (tenantQueue == null) {
+            Integer weight = tenantWeights.get(tenant);
+            tenantQueue = new TenantQueue(tenant, agingInterval, shortestJobFirstMaxWait, weight != null && weight > 0 ? weight : 1, virtualTime);
+            tenants.put(tenant, tenantQueue);
+        } else if (tenantQueue.queue.size() == 0) {
+            // a tenant that had nothing queued does not get credit for the turns it did not use
+            tenantQueue.pass = Math.max(tenantQueue.pass, virtualTime);
+        }
+        return tenantQueue;
+    }
+
+    /**
+     * Removes the next task to run and counts it as running for its tenant until
+     * {@link #taskFinished(OfficeTaskFuture)} is called.
+     *
+     * @return the next task, or <code>null</code> if no tenant currently has a task that may run
+     */
+    public OfficeTaskFuture poll() {
+        lock.lock();
+        try {
+            while (true) {
+                TenantQueue next = null;
+                for (TenantQueue tenantQueue : tenants.values()) {
+                    if (isDispatchable(tenantQueue) && (next == null || tenantQueue.pass < next.pass)) {
+                        next = tenantQueue;
+                    }
+                }
+                if (next == null) {
+                    return null;
+                }
+                int queued = next.queue.size();
+                OfficeTaskFuture future = next.queue.poll();
+                size -= queued - next.queue.size();
+                if (future != null) {
+                    next.runningTasks++;
+                    virtualTime = next.pass;
+                    next.pass += next.stride;
+                    return future;
+                }
+                removeIfIdle(next.tenant);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a task that has not been dispatched yet, e.g. because it was cancelled.
+     *
+     * @return <code>true</code> if the task was queued
+     */
+    public boolean remove(final OfficeTaskFuture future) {
+        lock.lock();
+        try {
+            String tenant = getTenant(future);
+            TenantQueue tenantQueue = tenants.get(tenant);
+            if (tenantQueue == null || !tenantQueue.queue.remove(future)) {
+                return false;
+            }
+            size--;
+            removeIfIdle(tenant);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void taskFinished(final OfficeTaskFuture future) {
+        lock.lock();
+        try {
+            String tenant = getTenant(future);
+            TenantQueue tenantQueue = tenants.get(tenant);
+            if (tenantQueue != null) {
+                tenantQueue.runningTasks--;
+                removeIfIdle(tenant);
+                dispatchable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until some tenant has a queued task that may run.
+     *
+     * @param timeout
+     *            in milliseconds; negative to wait indefinitely
+     * @return <code>false</code> if the timeout elapsed first
+     */
+    public boolean awaitDispatchable(final long timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!hasDispatchable()) {
+                if (timeout < 0L) {
+                    dispatchable.await();
+                } else if (nanos > 0L) {
+                    nanos = dispatchable.awaitNanos(nanos);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the submit time of the task that has been waiting longest, or <code>-1</code> if the queue is empty
+     */
+    public long getOldestSubmitTime() {
+        lock.lock();
+        try {
+            long oldest = -1L;
+            for (TenantQueue tenantQueue : tenants.values()) {
+                long submitTime = tenantQueue.queue.getOldestSubmitTime();
+                if (submitTime >= 0L && (oldest < 0L || submitTime < oldest)) {
+                    oldest = submitTime;
+                }
+            }
+            return oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the earliest queue deadline of the queued tasks, or <code>-1</code> if the queue is empty
+     */
+    public long getEarliestQueueDeadline() {
+        lock.lock();
+        try {
+            long earliest = -1L;
+            for (TenantQueue tenantQueue : tenants.values()) {
+                long queueDeadline = tenantQueue.queue.getEarliestQueueDeadline();
+                if (queueDeadline >= 0L && (earliest < 0L || queueDeadline < earliest)) {
+                    earliest = queueDeadline;
+                }
+            }
+            return earliest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the tasks whose queue deadline is at or before the given time.
+     */
+    public List<OfficeTaskFuture> removeExpired(final long time) {
+        List<OfficeTaskFuture> removed = new ArrayList<OfficeTaskFuture>();
+        lock.lock();
+        try {
+            Iterator<TenantQueue> iterator = tenants.values().iterator();
+            while (iterator.hasNext()) {
+                TenantQueue tenantQueue = iterator.next();
+                removed.addAll(tenantQueue.queue.removeExpired(time));
+                if (tenantQueue.queue.size() == 0 && tenantQueue.runningTasks == 0) {
+                    iterator.remove();
+                }
+            }
+            size -= removed.size();
+        } finally {
+            lock.unlock();
+        }
+        return removed;
+    }
+
+    public List<OfficeTaskFuture> clear() {
+        List<OfficeTaskFuture> removed = new ArrayList<OfficeTaskFuture>();
+        lock.lock();
+        try {
+            for (TenantQueue tenantQueue : tenants.values()) {
+                removed.addAll(tenantQueue.queue.clear());
+            }
+            tenants.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+        return removed;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasDispatchable() {
+        for (TenantQueue tenantQueue : tenants.values()) {
+            if (isDispatchable(tenantQueue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDispatchable(final TenantQueue tenantQueue) {
+        return tenantQueue.queue.size() > 0 && (maxConcurrentTasksPerTenant <= 0 || tenantQueue.runningTasks < maxConcurrentTasksPerTenant);
+    }
+
+    private void removeIfIdle(final String tenant) {
+        TenantQueue tenantQueue = tenants.get(tenant);
+        if (tenantQueue != null && tenantQueue.queue.size() == 0 && tenantQueue.runningTasks <= 0) {
+            tenants.remove(tenant);
+        }
+    }
+
+    private String getTenant(final OfficeTaskFuture future) {
+        String tenant = future.getOptions().getTenant();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+}
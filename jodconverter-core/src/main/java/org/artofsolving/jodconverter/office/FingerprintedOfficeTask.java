@@ -0,0 +1,31 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * An {@link OfficeTask} whose input can be identified by its content, so that a pool can
+ * recognise an input that keeps crashing office processes however it is named.
+ *
+ * @since 3.01.2.00
+ */
+public interface FingerprintedOfficeTask extends OfficeTask {
+
+    /**
+     * May be called more than once, and only when a pool needs it; implementations that
+     * hash a whole file should remember the result.
+     *
+     * @return a hash of the task's input, or <code>null</code> if it cannot be determined
+     */
+    String getInputFingerprint();
+
+}
@@ -0,0 +1,51 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * An {@link OfficeTask} that a pool may run a second time on another office process when
+ * the first run takes much longer than usual, keeping whichever run finishes first.
+ * <p>
+ * The copy must not write to the same output as the original; its output is only moved
+ * into place once it has won and the original has stopped.
+ *
+ * @since 3.01.2.00
+ */
+public interface HedgeableOfficeTask extends OfficeTask {
+
+    /**
+     * @return a copy of this task that writes to a separate, temporary output
+     * @throws OfficeException
+     *             if the copy cannot be set up
+     */
+    OfficeTask createHedge() throws OfficeException;
+
+    /**
+     * Makes the output of the given copy the output of this task, after the copy succeeded
+     * and this task did not.
+     *
+     * @param hedge
+     *            as returned by {@link #createHedge()}
+     * @throws OfficeException
+     */
+    void acceptHedge(OfficeTask hedge) throws OfficeException;
+
+    /**
+     * Removes whatever the given copy has written, once it is no longer needed.
+     *
+     * @param hedge
+     *            as returned by {@link #createHedge()}
+     */
+    void discardHedge(OfficeTask hedge);
+
+}
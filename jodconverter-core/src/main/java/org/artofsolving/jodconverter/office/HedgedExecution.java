@@ -0,0 +1,208 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One execution of a {@link HedgeableOfficeTask} by a pool, possibly backed by a hedge: a
+ * copy of the task started on a second office process when the original is running late.
+ * <p>
+ * The first run to succeed wins and the other one is cancelled. A winning hedge is only
+ * accepted once the original has stopped, so that the original cannot overwrite the
+ * output afterwards; the original is asked to stop as soon as the hedge succeeds. The
+ * execution fails only if both runs fail, see {@link #fail(OfficeException, PooledOfficeManager)}.
+ */
+class HedgedExecution {
+
+    private final OfficeTaskFuture future;
+    private final HedgeableOfficeTask task;
+
+    // all guarded by this
+    private PooledOfficeManager primaryManager;
+    private boolean primaryFinished = false;
+    private OfficeException primaryFailure;
+    private PooledOfficeManager primaryFailedManager;
+    private OfficeTask hedge;
+    private PooledOfficeManager hedgeManager;
+    private boolean hedgeFinished = false;
+    private OfficeException hedgeFailure;
+    private boolean decided = false;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getName());
+
+    public HedgedExecution(final OfficeTaskFuture future) {
+        this.future = future;
+        this.task = (HedgeableOfficeTask) future.getTask();
+        future.addListener(new OfficeTaskListener() {
+            @Override
+            public void taskCompleted(final OfficeTask task) {
+                // nothing to stop
+            }
+            @Override
+            public void taskFailed(final OfficeTask task, final OfficeException exception) {
+                if (future.isCancelled()) {
+                    cancelHedge();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the original task on the calling thread.
+     */
+    public void runPrimary(final PooledOfficeManager manager) {
+        synchronized (this) {
+            primaryManager = manager;
+        }
+        OfficeException failure = future.attempt(manager);
+        synchronized (this) {
+            primaryManager = null;
+            primaryFinished = true;
+            primaryFailure = failure;
+            if (failure != null) {
+                primaryFailedManager = manager;
+            }
+        }
+        decide();
+    }
+
+    /**
+     * Claims the given manager for a hedge, unless the outcome is already known.
+     *
+     * @return <code>false</code> if no hedge is needed any more
+     */
+    public boolean startHedge(final PooledOfficeManager manager) {
+        synchronized (this) {
+            if (hedge != null || primaryFinished || future.isDone()) {
+                return false;
+            }
+            try {
+                hedge = task.createHedge();
+            } catch (OfficeException officeException) {
+                logger.warn("could not create hedge", officeException);
+                return false;
+            }
+            hedgeManager = manager;
+        }
+        logger.info("task is running late; starting a hedge on another office process");
+        return true;
+    }
+
+    /**
+     * Runs the hedge claimed by {@link #startHedge(PooledOfficeManager)} on the calling thread.
+     */
+    public void runHedge() {
+        OfficeTask currentHedge;
+        PooledOfficeManager manager;
+        synchronized (this) {
+            currentHedge = hedge;
+            manager = hedgeManager;
+        }
+        OfficeException failure = null;
+        try {
+            long executionTimeout = future.getOptions().getExecutionTimeout();
+            manager.execute(currentHedge, executionTimeout > 0L ? executionTimeout : manager.getTaskExecutionTimeout(), null);
+        } catch (OfficeException officeException) {
+            failure = officeException;
+        } catch (RuntimeException runtimeException) {
+            failure = new OfficeException("task failed", runtimeException);
+        }
+        PooledOfficeManager lateManager = null;
+        synchronized (this) {
+            hedgeFinished = true;
+            hedgeFailure = failure;
+            if (failure == null && !primaryFinished) {
+                lateManager = primaryManager;
+            }
+        }
+        if (lateManager != null) {
+            logger.info("hedge finished first; cancelling the original task");
+            lateManager.cancel(task);
+        }
+        decide();
+    }
+
+    private void cancelHedge() {
+        PooledOfficeManager manager;
+        OfficeTask currentHedge;
+        synchronized (this) {
+            if (hedge == null || hedgeFinished) {
+                return;
+            }
+            manager = hedgeManager;
+            currentHedge = hedge;
+        }
+        manager.cancel(currentHedge);
+    }
+
+    /**
+     * Fails the future once the original has failed and the hedge, if any, did not win;
+     * a pool may override this to queue the task again instead.
+     *
+     * @param manager
+     *            that ran the original
+     */
+    protected void fail(final OfficeException failure, final PooledOfficeManager manager) {
+        future.fail(failure);
+    }
+
+    private void decide() {
+        OfficeTask currentHedge;
+        OfficeException failure;
+        PooledOfficeManager failedManager;
+        boolean accept = false;
+        boolean discard = false;
+        synchronized (this) {
+            currentHedge = hedge;
+            failure = primaryFailure;
+            failedManager = primaryFailedManager;
+            if (decided) {
+                // a hedge that lost has stopped by now
+                discard = currentHedge != null && hedgeFinished;
+            } else if (!primaryFinished) {
+                return;
+            } else if (primaryFailure == null || currentHedge == null || future.isDone()) {
+                decided = true;
+                discard = currentHedge != null && hedgeFinished;
+            } else if (!hedgeFinished) {
+                // the original failed; the hedge may still succeed
+                return;
+            } else {
+                decided = true;
+                accept = hedgeFailure == null;
+                discard = !accept;
+            }
+        }
+        if (accept) {
+            try {
+                task.acceptHedge(currentHedge);
+                future.complete();
+            } catch (OfficeException officeException) {
+                future.fail(officeException);
+            }
+            return;
+        }
+        if (discard) {
+            task.discardHedge(currentHedge);
+        }
+        if (failure == null) {
+            future.complete();
+        } else {
+            fail(failure, failedManager);
+        }
+        cancelHedge();
+    }
+
+}
@@ -0,0 +1,160 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.artofsolving.jodconverter.document.DocumentFamily;
+
+/**
+ * The idle {@link PooledOfficeManager}s of a pool, handed out according to a {@link DispatchPolicy}.
+ * <p>
+ * Managers are kept in release order. A task of a known {@link DocumentFamily} is given
+ * a manager that last handled the same family when one is idle; the dispatch policy then
+ * chooses among those managers only. Managers are taken out by the dispatcher thread and,
+ * for hedged execution, by the pool's hedge timer thread, so the lock is held briefly by at most
+ * two takers and the threads returning managers.
+ */
+class IdleManagerPool {
+
+    private final DispatchPolicy dispatchPolicy;
+    private final List<PooledOfficeManager> idleManagers = new ArrayList<PooledOfficeManager>();
+    private final List<PooledOfficeManager> idleManagersView = Collections.unmodifiableList(idleManagers);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    public IdleManagerPool(final DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy;
+    }
+
+    /**
+     * Waits until at least one manager is idle.
+     *
+     * @return <code>false</code> if the timeout elapsed first
+     */
+    public boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = unit.toNanos(timeout);
+            while (idleManagers.isEmpty()) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param documentFamily
+     *            the family of the document to be converted, or <code>null</code> if unknown
+     * @param affinityWait
+     *            how long to wait for a manager of the same family when only others are idle
+     * @param timeout
+     *            how long to wait for any manager
+     * @return the manager chosen by the dispatch policy, or <code>null</code> if none became idle within the timeout
+     */
+    public PooledOfficeManager poll(final DocumentFamily documentFamily, final long affinityWait, final long timeout, final TimeUnit unit) throws InterruptedException {
+        return poll(documentFamily, null, affinityWait, timeout, unit);
+    }
+
+    /**
+     * @param avoid
+     *            a manager to hand out only if it is the only idle one, or <code>null</code>
+     * @see #poll(DocumentFamily, long, long, TimeUnit)
+     */
+    public PooledOfficeManager poll(final DocumentFamily documentFamily, final PooledOfficeManager avoid, final long affinityWait, final long timeout,
+            final TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = unit.toNanos(timeout);
+            long affinityNanos = documentFamily != null ? unit.toNanos(affinityWait) : 0L;
+            while (true) {
+                if (documentFamily != null) {
+                    List<PooledOfficeManager> sameFamily = new ArrayList<PooledOfficeManager>();
+                    for (PooledOfficeManager manager : idleManagers) {
+                        if (manager.getDocumentFamily() == documentFamily && manager != avoid) {
+                            sameFamily.add(manager);
+                        }
+                    }
+                    if (!sameFamily.isEmpty()) {
+                        return take(dispatchPolicy.select(Collections.unmodifiableList(sameFamily)));
+                    }
+                }
+                if (!idleManagers.isEmpty() && affinityNanos <= 0L) {
+                    if (avoid != null && idleManagers.size() > 1 && idleManagers.contains(avoid)) {
+                        List<PooledOfficeManager> others = new ArrayList<PooledOfficeManager>(idleManagers);
+                        others.remove(avoid);
+                        return take(dispatchPolicy.select(Collections.unmodifiableList(others)));
+                    }
+                    return take(dispatchPolicy.select(idleManagersView));
+                }
+                if (nanos <= 0L) {
+                    return null;
+                }
+                long waited = idleManagers.isEmpty() ? nanos : Math.min(nanos, affinityNanos);
+                long remaining = notEmpty.awaitNanos(waited);
+                nanos -= waited - remaining;
+                affinityNanos -= waited - remaining;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(final PooledOfficeManager manager) {
+        lock.lock();
+        try {
+            idleManagers.add(manager);
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the manager was idle and has been taken out
+     */
+    public boolean remove(final PooledOfficeManager manager) {
+        lock.lock();
+        try {
+            return idleManagers.remove(manager);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            idleManagers.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledOfficeManager take(final PooledOfficeManager manager) {
+        idleManagers.remove(manager);
+        return manager;
+    }
+
+}
@@ -13,9 +13,10 @@
 package org.artofsolving.jodconverter.office;
 
 import java.net.ConnectException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +33,13 @@ class ManagedOfficeProcess {
 	private final OfficeProcess process;
 	private final OfficeConnection connection;
 
-	private ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("OfficeProcessThread"));
+	private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("OfficeProcessThread"));
+
+	private long connectTime;
+	private int consecutiveCrashes = 0;
+	private volatile boolean terminationExpected = false;
+	// only accessed on the executor thread
+	private Future<?> delayedRestart;
 
 	private final Logger logger = LoggerFactory.getLogger(getClass().getName());
 
@@ -46,10 +53,15 @@ class ManagedOfficeProcess {
 		return connection;
 	}
 
+	public long getPid() {
+		return process.getPid();
+	}
+
 	public void startAndWait() throws OfficeException {
 		Future<?> future = executor.submit(new Runnable() {
 			@Override
             public void run() {
+				cancelDelayedRestart();
 				doStartProcessAndConnect();
 			}
 		});
@@ -64,6 +76,7 @@ class ManagedOfficeProcess {
 		Future<?> future = executor.submit(new Runnable() {
 			@Override
             public void run() {
+				cancelDelayedRestart();
 				doStopProcess();
 			}
 		});
@@ -78,6 +91,7 @@ class ManagedOfficeProcess {
 		Future<?> future = executor.submit(new Runnable() {
 			@Override
             public void run() {
+				cancelDelayedRestart();
 				doStopProcess();
 				doStartProcessAndConnect();
 			}
@@ -90,6 +104,7 @@ class ManagedOfficeProcess {
 	}
 
 	public void restartDueToTaskTimeout() {
+		expectTermination();
 		executor.execute(new Runnable() {
 			@Override
             public void run() {
@@ -99,21 +114,91 @@ class ManagedOfficeProcess {
 		});
 	}
 
-	public void restartDueToLostConnection() {
+	/**
+	 * Restarts the process after it was lost, waiting first if it keeps crashing; the wait
+	 * is scheduled so that a stop or restart requested meanwhile is not held up.
+	 *
+	 * @param failureCallback
+	 *            run if the process cannot be restarted
+	 */
+	public void restartDueToLostConnection(final Runnable failureCallback) {
 		executor.execute(new Runnable() {
 			@Override
             public void run() {
+				final Runnable restart = new Runnable() {
+					@Override
+					public void run() {
+						delayedRestart = null;
+						try {
+							doStartProcessAndConnect();
+						} catch (OfficeException officeException) {
+							logger.error("could not restart process", officeException);
+							failureCallback.run();
+						}
+					}
+				};
 				try {
 					doEnsureProcessExited();
-					doStartProcessAndConnect();
 				} catch (OfficeException officeException) {
 				    logger.error("could not restart process", officeException);
+				    failureCallback.run();
+				    return;
+				}
+				long delay = nextRestartDelay(System.currentTimeMillis() - connectTime);
+				if (delay > 0L) {
+					logger.warn(String.format("office process lost %d times in a row; waiting %d ms before restarting", consecutiveCrashes, delay));
+					delayedRestart = executor.schedule(restart, delay, TimeUnit.MILLISECONDS);
+				} else {
+					restart.run();
 				}
 			}
 		});
 	}
 
+	/**
+	 * The next loss of the process is caused on purpose, e.g. after a task timeout, and does
+	 * not count as a crash.
+	 */
+	void expectTermination() {
+		terminationExpected = true;
+	}
+
+	/**
+	 * Counts a loss of the process, unless it was expected.
+	 *
+	 * @param uptime
+	 *            of the lost process
+	 * @return how long to wait before restarting the process
+	 */
+	long nextRestartDelay(final long uptime) {
+		if (terminationExpected) {
+			terminationExpected = false;
+			return 0L;
+		}
+		RestartGovernor governor = settings.getRestartGovernor();
+		if (governor.isUnstable(uptime)) {
+			consecutiveCrashes++;
+		} else {
+			consecutiveCrashes = 1;
+		}
+		return governor.getCrashRestartDelay(consecutiveCrashes);
+	}
+
+	private void cancelDelayedRestart() {
+		if (delayedRestart != null) {
+			delayedRestart.cancel(false);
+			delayedRestart = null;
+		}
+	}
+
 	private void doStartProcessAndConnect() throws OfficeException {
+		RestartGovernor governor = settings.getRestartGovernor();
+		try {
+			governor.acquireStartPermit();
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			throw new OfficeException("interrupted", interruptedException);
+		}
 		try {
 			process.start();
 			new Retryable() {
@@ -138,8 +223,11 @@ class ManagedOfficeProcess {
 					}
 				}
 			}.execute(settings.getRetryInterval(), settings.getRetryTimeout());
+			connectTime = System.currentTimeMillis();
 		} catch (Exception exception) {
 			throw new OfficeException("could not establish connection", exception);
+		} finally {
+			governor.releaseStartPermit();
 		}
 	}
 
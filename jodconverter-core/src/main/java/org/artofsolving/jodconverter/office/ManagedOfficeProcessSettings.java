@@ -29,6 +29,7 @@ class ManagedOfficeProcessSettings {
     private long retryTimeout = DefaultOfficeManagerConfiguration.DEFAULT_RETRY_TIMEOUT;
     private long retryInterval = DEFAULT_RETRY_INTERVAL;
     private boolean useGnuStyleLongOptions = false;
+    private RestartGovernor restartGovernor = new RestartGovernor();
 
     public ManagedOfficeProcessSettings(final UnoUrl unoUrl) {
         this.unoUrl = unoUrl;
@@ -101,4 +102,12 @@ class ManagedOfficeProcessSettings {
     public void setUseGnuStyleLongOptions(final boolean useGnuStyleLongOptions) {
         this.useGnuStyleLongOptions = useGnuStyleLongOptions;
     }
+
+    public RestartGovernor getRestartGovernor() {
+        return restartGovernor;
+    }
+
+    public void setRestartGovernor(final RestartGovernor restartGovernor) {
+        this.restartGovernor = restartGovernor;
+    }
 }
@@ -100,6 +100,10 @@ class OfficeConnection implements OfficeContext {
         }
     }
 
+    public UnoUrl getUnoUrl() {
+        return unoUrl;
+    }
+
     public boolean isConnected() {
         return connected;
     }
@@ -0,0 +1,63 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Runtime statistics of one office process in a pool, as seen by a {@link DispatchPolicy}.
+ * <p>
+ * All figures cover the current process lifetime and are reset when the process is restarted.
+ *
+ * @since 3.01.2.00
+ */
+public interface OfficeInstanceMetrics {
+
+    /**
+     * @return the number of tasks executed by the current process
+     */
+    int getTasksServed();
+
+    /**
+     * @return the exponentially weighted average duration of recent tasks in milliseconds,
+     *         or 0 if no task has been executed yet
+     */
+    long getAverageTaskDuration();
+
+    /**
+     * @return the exponentially weighted fraction of recent tasks that failed, between 0 and 1
+     */
+    double getFailureRate();
+
+    /**
+     * @return the average duration in milliseconds of the first tasks executed by the
+     *         current process, or 0 until enough tasks have been executed
+     */
+    long getBaselineTaskDuration();
+
+    /**
+     * @return milliseconds since the current process was connected
+     */
+    long getUptime();
+
+    /**
+     * @return the resident memory of the process in bytes, or <code>-1</code> if it cannot
+     *         be determined (only available where <code>/proc/&lt;pid&gt;/status</code> exists
+     *         and the process manager can find out the pid)
+     */
+    long getResidentMemory();
+
+    /**
+     * @return the current lifecycle state of the process
+     */
+    OfficeInstanceState getState();
+
+}
@@ -0,0 +1,41 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * The lifecycle state of one office process in a pool, see {@link OfficeInstanceMetrics#getState()}.
+ * A pool only hands tasks to {@link #READY} processes.
+ *
+ * @since 3.01.2.00
+ */
+public enum OfficeInstanceState {
+
+    /** not running, e.g. an unused slot of an elastic pool */
+    STOPPED,
+
+    /** being started and connected to */
+    STARTING,
+
+    /** connected and waiting for a task */
+    READY,
+
+    /** executing a task */
+    BUSY,
+
+    /** being restarted after a crash, a timeout or for recycling */
+    RESTARTING,
+
+    /** could not be restarted; the pool starts it afresh when it needs another process */
+    DEAD
+
+}
@@ -0,0 +1,156 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive use of one office process for a sequence of tasks, obtained with
+ * {@link OfficeManager#lease(long)}.
+ * <p>
+ * Tasks run one after the other on the same process, so related documents can reuse the
+ * fonts and templates it has already loaded, and only the lease itself waits in the queue.
+ * All tasks share the lease time: a task is given at most the time left, and once the
+ * lease has expired the process goes back to the pool and further tasks fail. Release the
+ * lease as soon as the sequence is done, typically in a <code>finally</code> block.
+ * <p>
+ * Managers of external office processes do not reserve a process for the lease, but the
+ * lease time applies all the same: a task still running when it runs out is cancelled.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeLease {
+
+    /**
+     * Placeholder queued in place of a task until an office process is granted to the lease.
+     */
+    static class Request implements OfficeTask {
+        private final OfficeLease lease;
+
+        Request(final OfficeLease lease) {
+            this.lease = lease;
+        }
+
+        OfficeLease getLease() {
+            return lease;
+        }
+
+        @Override
+        public void execute(final OfficeContext context) throws OfficeException {
+            throw new UnsupportedOperationException("a lease request is not executed as a task");
+        }
+    }
+
+    private final long leaseTime;
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final ReentrantLock executionLock = new ReentrantLock();
+
+    private volatile OfficeManager manager;
+    private volatile long deadline;
+    private volatile boolean expired = false;
+
+    OfficeLease(final long leaseTime) {
+        this.leaseTime = leaseTime;
+    }
+
+    /**
+     * Executes a task on the leased office process.
+     *
+     * @throws OfficeException
+     *             if the task fails, or the lease has been released or has expired
+     */
+    public void execute(final OfficeTask task) throws OfficeException {
+        executionLock.lock();
+        try {
+            long remainingTime = getRemainingTime();
+            if (manager == null || expired || released.getCount() == 0L || remainingTime <= 0L) {
+                throw new OfficeException("lease is no longer valid");
+            }
+            if (manager instanceof PooledOfficeManager) {
+                ((PooledOfficeManager) manager).execute(task, Math.min(remainingTime, ((PooledOfficeManager) manager).getTaskExecutionTimeout()), null);
+            } else {
+                executeWithin(task, remainingTime);
+            }
+        } finally {
+            executionLock.unlock();
+        }
+    }
+
+    /**
+     * Executes a task on a manager that does not take an execution timeout, cancelling it
+     * if it runs for longer than the given time.
+     */
+    private void executeWithin(final OfficeTask task, final long timeout) throws OfficeException {
+        OfficeTaskFuture future = manager.submit(task);
+        try {
+            future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException executionException) {
+            throw (OfficeException) executionException.getCause();
+        } catch (TimeoutException timeoutException) {
+            future.cancel(true);
+            throw new OfficeException("task did not complete within the lease time", timeoutException);
+        } catch (InterruptedException interruptedException) {
+            future.cancel(true);
+            throw new OfficeException("interrupted", interruptedException);
+        }
+    }
+
+    /**
+     * @return milliseconds until the lease expires
+     */
+    public long getRemainingTime() {
+        return deadline - System.currentTimeMillis();
+    }
+
+    /**
+     * Gives the office process back. Does nothing if already released.
+     */
+    public void release() {
+        released.countDown();
+    }
+
+    Request newRequest() {
+        return new Request(this);
+    }
+
+    /**
+     * Hands the office process to the lease and starts its clock.
+     */
+    void grant(final OfficeManager manager) {
+        deadline = System.currentTimeMillis() + leaseTime;
+        this.manager = manager;
+    }
+
+    /**
+     * Waits until the lease is released or expires, and for the task it is executing, if any.
+     */
+    void awaitRelease() throws InterruptedException {
+        try {
+            if (!released.await(Math.max(getRemainingTime(), 0L), TimeUnit.MILLISECONDS)) {
+                expired = true;
+            }
+        } finally {
+            executionLock.lockInterruptibly();
+            try {
+                manager = null;
+            } finally {
+                executionLock.unlock();
+            }
+        }
+    }
+
+}
@@ -22,6 +22,69 @@ public interface OfficeManager {
 
     void execute(OfficeTask task) throws OfficeException;
 
+    /**
+     * Queues a task for execution without blocking the calling thread.
+     *
+     * @param task
+     * @return
+     *    A future that completes when the task has been executed.
+     * @throws OfficeException
+     *
+     * @since 3.01.2.00
+     */
+    OfficeTaskFuture submit(OfficeTask task) throws OfficeException;
+
+    /**
+     * Queues a task for execution without blocking the calling thread, using the given
+     * scheduling options. Implementations that do not queue tasks may ignore the options.
+     *
+     * @param task
+     * @param options
+     * @return
+     *    A future that completes when the task has been executed.
+     * @throws OfficeException
+     *
+     * @since 3.01.2.00
+     */
+    OfficeTaskFuture submit(OfficeTask task, OfficeTaskOptions options) throws OfficeException;
+
+    /**
+     * Reserves one office process for a sequence of tasks, waiting in the queue like a
+     * single task would.
+     *
+     * @param leaseTime
+     *    milliseconds after which the process is taken back, counted from when it is granted
+     * @return
+     * @throws OfficeException
+     *    if no office process could be granted
+     *
+     * @since 3.01.2.00
+     */
+    OfficeLease lease(long leaseTime) throws OfficeException;
+
+    /**
+     * Reserves one office process for a sequence of tasks, with the given scheduling options.
+     *
+     * @param leaseTime
+     * @param options
+     * @return
+     * @throws OfficeException
+     *
+     * @since 3.01.2.00
+     */
+    OfficeLease lease(long leaseTime, OfficeTaskOptions options) throws OfficeException;
+
+    /**
+     * Estimates how long a task with the given options would wait and run if it were
+     * submitted now, from the durations of past tasks with the same cost key.
+     *
+     * @param options
+     * @return
+     *
+     * @since 3.01.2.00
+     */
+    OfficeTaskEstimate estimate(OfficeTaskOptions options);
+
     void start() throws OfficeException;
 
     void stop() throws OfficeException;
@@ -43,7 +43,7 @@ class OfficeProcess {
     private OfficeVersion versionDescriptor;
 
     private Process process;
-    private long pid = PID_UNKNOWN;
+    private volatile long pid = PID_UNKNOWN;
 	private String commandArgPrefix;
 
     private final Logger logger = LoggerFactory.getLogger(getClass().getName());
@@ -200,6 +200,13 @@ class OfficeProcess {
         environment.put(pathKey, path);
     }
 
+    /**
+     * @return the pid of the process, or {@link ProcessManager#PID_UNKNOWN} if the process manager cannot find it out
+     */
+    public long getPid() {
+        return pid;
+    }
+
     public boolean isRunning() {
         if (process == null) {
             return false;
@@ -0,0 +1,41 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Thrown when a task failed because the office process executing it crashed or had to
+ * be restarted, rather than because the task itself reported an error. The input may
+ * still be to blame: a malformed document can crash or hang an office process.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeProcessFailedException extends OfficeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean taskTimeout;
+
+    public OfficeProcessFailedException(String message, Throwable cause, boolean taskTimeout) {
+        super(message, cause);
+        this.taskTimeout = taskTimeout;
+    }
+
+    /**
+     * @return <code>true</code> if the process was restarted because the task exceeded its
+     *         execution timeout, <code>false</code> if the process was lost while executing it
+     */
+    public boolean isTaskTimeout() {
+        return taskTimeout;
+    }
+
+}
@@ -0,0 +1,58 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * How long an {@link OfficeManager} expects a task to wait and to run, see
+ * {@link OfficeManager#estimate(OfficeTaskOptions)}. Either figure is 0 when the
+ * manager has nothing to base it on yet.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeTaskEstimate {
+
+    private final long expectedDuration;
+    private final long queueWait;
+
+    public OfficeTaskEstimate(final long expectedDuration, final long queueWait) {
+        this.expectedDuration = expectedDuration;
+        this.queueWait = queueWait;
+    }
+
+    /**
+     * @return the expected execution time in milliseconds
+     */
+    public long getExpectedDuration() {
+        return expectedDuration;
+    }
+
+    /**
+     * @return the expected wait in milliseconds before a task submitted now starts
+     */
+    public long getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return the expected time in milliseconds until a task submitted now has finished
+     */
+    public long getExpectedCompletion() {
+        return queueWait + expectedDuration;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OfficeTaskEstimate[expectedDuration=%d, queueWait=%d]", expectedDuration, queueWait);
+    }
+
+}
@@ -0,0 +1,423 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pending outcome of an {@link OfficeTask} submitted to an {@link OfficeManager}.
+ * <p>
+ * Listeners added with {@link #addListener(OfficeTaskListener)} are notified on the
+ * thread that finishes the task, or straight away if the task has already finished.
+ * <p>
+ * Cancelling removes a task that is still waiting to be executed. A task that is already
+ * running is only aborted when <code>mayInterruptIfRunning</code> is set: a
+ * {@link CancellableOfficeTask} is asked to stop, and an office process of a pool that is
+ * still busy with the task after a grace period is restarted.
+ * <p>
+ * An office manager may let a thread waiting in {@link #join()} run the task itself
+ * (see {@link #runOnJoiningThread(Executor)}), so that a synchronous caller does not
+ * hand its task over to another thread.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeTaskFuture implements Future<Void> {
+
+    private static final Runnable WAKE_UP = new Runnable() {
+        @Override
+        public void run() {
+            // only wakes up the joining thread
+        }
+    };
+
+    private final OfficeTask task;
+    private final OfficeTaskOptions options;
+    private final long submitTime = System.currentTimeMillis();
+    private volatile long queueDeadline = Long.MAX_VALUE;
+    private volatile int retries = 0;
+    private volatile OfficeManager failedManager;
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+    private final List<OfficeTaskListener> listeners = new ArrayList<OfficeTaskListener>();
+
+    private boolean done = false;
+    private boolean cancelled = false;
+    private OfficeException exception;
+    private OfficeManager runningManager;
+    // where runs go that no joining thread takes, or null if they are not handed over
+    private Executor runExecutor;
+    // the runs handed over to the thread waiting in join(), if any
+    private BlockingQueue<Runnable> joiningThread;
+    private Thread joiningThreadOwner;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getName());
+
+    OfficeTaskFuture(final OfficeTask task) {
+        this(task, new OfficeTaskOptions());
+    }
+
+    OfficeTaskFuture(final OfficeTask task, final OfficeTaskOptions options) {
+        this.task = task;
+        this.options = options;
+    }
+
+    public OfficeTask getTask() {
+        return task;
+    }
+
+    public void addListener(final OfficeTaskListener listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        notifyListener(listener);
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        OfficeManager manager;
+        List<OfficeTaskListener> listenersToNotify;
+        synchronized (this) {
+            // read together with the state change, so that a task starting in between is either seen here or not started at all
+            listenersToNotify = markDone(new OfficeException("task cancelled", new CancellationException()), true);
+            if (listenersToNotify == null) {
+                return false;
+            }
+            manager = runningManager;
+        }
+        notifyDone(listenersToNotify);
+        if (mayInterruptIfRunning && manager != null) {
+            if (manager instanceof PooledOfficeManager) {
+                ((PooledOfficeManager) manager).cancel(task);
+            } else if (task instanceof CancellableOfficeTask) {
+                ((CancellableOfficeTask) task).cancel();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+        doneLatch.await();
+        return getResult();
+    }
+
+    @Override
+    public Void get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!doneLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    /**
+     * Waits for the task to finish, throwing its failure as is rather than wrapped in an
+     * {@link ExecutionException}.
+     *
+     * @throws OfficeException
+     */
+    public void join() throws OfficeException {
+        try {
+            if (!runWhileJoining()) {
+                doneLatch.await();
+            }
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted", interruptedException);
+        }
+        synchronized (this) {
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Runs the runs handed over with {@link #handOver(Runnable)} on this thread until the
+     * task has finished. Runs handed over but not taken when this thread stops waiting go
+     * to the executor instead.
+     *
+     * @return <code>false</code> if runs are not handed over or another thread takes them
+     */
+    private boolean runWhileJoining() throws InterruptedException {
+        BlockingQueue<Runnable> handoff;
+        synchronized (this) {
+            if (runExecutor == null) {
+                return false;
+            }
+            if (joiningThread == null) {
+                if (done) {
+                    return false;
+                }
+                reserveForCurrentThread();
+            } else if (joiningThreadOwner != Thread.currentThread()) {
+                return false;
+            }
+            handoff = joiningThread;
+        }
+        try {
+            // a retried task may be handed over again; finishing the task wakes this thread up
+            while (!isDone()) {
+                handoff.take().run();
+            }
+        } finally {
+            List<Runnable> leftRuns = new ArrayList<Runnable>();
+            synchronized (this) {
+                joiningThread = null;
+                joiningThreadOwner = null;
+                handoff.drainTo(leftRuns);
+            }
+            for (Runnable run : leftRuns) {
+                if (run != WAKE_UP) {
+                    execute(run);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lets a thread waiting in {@link #join()} run the task, see {@link #handOver(Runnable)}.
+     *
+     * @param executor
+     *            runs the task when no thread is waiting for it
+     */
+    void runOnJoiningThread(final Executor executor) {
+        runExecutor = executor;
+    }
+
+    /**
+     * Keeps the runs handed over from now on for the calling thread, which is to call
+     * {@link #join()} right after queuing the task, so that the task runs on it even if it
+     * is dispatched before the thread waits.
+     */
+    synchronized void reserveForCurrentThread() {
+        joiningThread = new LinkedBlockingQueue<Runnable>();
+        joiningThreadOwner = Thread.currentThread();
+    }
+
+    /**
+     * Runs the task on the thread waiting in {@link #join()} or reserved for it, or on the
+     * executor given to {@link #runOnJoiningThread(Executor)} if there is none.
+     *
+     * @param run
+     *            executes the task and gives its office process back
+     * @return <code>false</code> if the task is not run on joining threads, and the caller
+     *         has to run it
+     */
+    boolean handOver(final Runnable run) {
+        synchronized (this) {
+            if (runExecutor == null) {
+                return false;
+            }
+            if (joiningThread != null) {
+                joiningThread.add(run);
+                return true;
+            }
+        }
+        execute(run);
+        return true;
+    }
+
+    private void execute(final Runnable run) {
+        try {
+            runExecutor.execute(run);
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            // the manager is stopping; the run still has to give its office process back
+            run.run();
+        }
+    }
+
+    OfficeTaskOptions getOptions() {
+        return options;
+    }
+
+    long getSubmitTime() {
+        return submitTime;
+    }
+
+    /**
+     * @return the time by which the task must have left the queue
+     */
+    long getQueueDeadline() {
+        return queueDeadline;
+    }
+
+    void setQueueDeadline(final long queueDeadline) {
+        this.queueDeadline = queueDeadline;
+    }
+
+    /**
+     * @return how many times the task has been queued again after its office process failed
+     */
+    int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the manager whose process failed during the last attempt, or <code>null</code>
+     */
+    OfficeManager getFailedManager() {
+        return failedManager;
+    }
+
+    void retryAfterFailureOf(final OfficeManager manager) {
+        retries++;
+        failedManager = manager;
+    }
+
+    /**
+     * Executes the task with the given manager, unless it was cancelled in the meantime.
+     */
+    void run(final OfficeManager manager) {
+        OfficeException failure = attempt(manager);
+        if (failure == null) {
+            complete();
+        } else {
+            fail(failure);
+        }
+    }
+
+    /**
+     * Executes the task with the given manager like {@link #run(OfficeManager)}, but leaves
+     * it to the caller to finish this future.
+     *
+     * @return the failure, or <code>null</code> if the task succeeded or had already finished
+     */
+    OfficeException attempt(final OfficeManager manager) {
+        synchronized (this) {
+            if (done) {
+                return exception;
+            }
+            runningManager = manager;
+        }
+        try {
+            if (manager instanceof PooledOfficeManager) {
+                PooledOfficeManager pooledManager = (PooledOfficeManager) manager;
+                long executionTimeout = options.getExecutionTimeout() > 0L ? options.getExecutionTimeout() : pooledManager.getTaskExecutionTimeout();
+                pooledManager.execute(task, executionTimeout, options.getCostKey());
+            } else if (manager instanceof ExternalOfficePoolManager) {
+                ((ExternalOfficePoolManager) manager).execute(task, queueDeadline);
+            } else {
+                manager.execute(task);
+            }
+            return null;
+        } catch (OfficeException officeException) {
+            return officeException;
+        } catch (RuntimeException runtimeException) {
+            return new OfficeException("task failed", runtimeException);
+        } finally {
+            synchronized (this) {
+                runningManager = null;
+            }
+        }
+    }
+
+    boolean complete() {
+        return finish(null, false);
+    }
+
+    boolean fail(final OfficeException exception) {
+        return finish(exception, false);
+    }
+
+    private boolean finish(final OfficeException exception, final boolean cancelled) {
+        List<OfficeTaskListener> listenersToNotify;
+        synchronized (this) {
+            listenersToNotify = markDone(exception, cancelled);
+            if (listenersToNotify == null) {
+                return false;
+            }
+        }
+        notifyDone(listenersToNotify);
+        return true;
+    }
+
+    /**
+     * Must be called while holding the lock.
+     *
+     * @return the listeners to notify, or <code>null</code> if the task had already finished
+     */
+    private List<OfficeTaskListener> markDone(final OfficeException exception, final boolean cancelled) {
+        if (done) {
+            return null;
+        }
+        this.exception = exception;
+        this.cancelled = cancelled;
+        done = true;
+        if (joiningThread != null) {
+            joiningThread.add(WAKE_UP);
+        }
+        List<OfficeTaskListener> listenersToNotify = new ArrayList<OfficeTaskListener>(listeners);
+        listeners.clear();
+        return listenersToNotify;
+    }
+
+    private void notifyDone(final List<OfficeTaskListener> listenersToNotify) {
+        doneLatch.countDown();
+        for (OfficeTaskListener listener : listenersToNotify) {
+            notifyListener(listener);
+        }
+    }
+
+    private synchronized Void getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return null;
+    }
+
+    private void notifyListener(final OfficeTaskListener listener) {
+        OfficeException failure;
+        synchronized (this) {
+            failure = exception;
+        }
+        try {
+            if (failure == null) {
+                listener.taskCompleted(task);
+            } else {
+                listener.taskFailed(task, failure);
+            }
+        } catch (RuntimeException runtimeException) {
+            logger.warn("task listener failed", runtimeException);
+        }
+    }
+
+}
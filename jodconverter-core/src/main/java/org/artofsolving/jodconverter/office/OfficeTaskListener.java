@@ -0,0 +1,27 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Receives the outcome of an {@link OfficeTask} submitted with
+ * {@link OfficeManager#submit(OfficeTask)}.
+ *
+ * @since 3.01.2.00
+ */
+public interface OfficeTaskListener {
+
+    void taskCompleted(OfficeTask task);
+
+    void taskFailed(OfficeTask task, OfficeException exception);
+
+}
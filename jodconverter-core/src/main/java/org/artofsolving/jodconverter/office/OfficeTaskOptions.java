@@ -0,0 +1,210 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import org.artofsolving.jodconverter.document.DocumentFamily;
+
+/**
+ * Per-task scheduling options for {@link OfficeManager#submit(OfficeTask, OfficeTaskOptions)}.
+ * <p>
+ * Options must not be modified once the task has been submitted.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeTaskOptions {
+
+    private OfficeTaskPriority priority = OfficeTaskPriority.NORMAL;
+    private String tenant = null;
+    private DocumentFamily documentFamily = null;
+    private long deadline = 0L;
+    private long queueTimeout = 0L;
+    private long executionTimeout = 0L;
+    private long estimatedCost = 0L;
+    private String costKey = null;
+    private Boolean idempotent = null;
+
+    public OfficeTaskPriority getPriority() {
+        return priority;
+    }
+
+    public OfficeTaskOptions setPriority(final OfficeTaskPriority priority) throws NullPointerException {
+        if (priority == null) {
+            throw new NullPointerException("priority must not be null");
+        }
+        this.priority = priority;
+        return this;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Tags the task with the client it is executed for, so that a pool shared by several
+     * clients can divide its office processes fairly between them. Untagged tasks all
+     * belong to the same default tenant.
+     *
+     * @param tenant
+     * @return
+     */
+    public OfficeTaskOptions setTenant(final String tenant) {
+        this.tenant = tenant;
+        return this;
+    }
+
+    public DocumentFamily getDocumentFamily() {
+        return documentFamily;
+    }
+
+    /**
+     * Tells a pool which kind of document the task loads, so that it can prefer an office
+     * process that has just handled the same kind and still has the modules loaded.
+     * {@link org.artofsolving.jodconverter.OfficeDocumentConverter} fills this in from
+     * the input format when it is not set.
+     *
+     * @param documentFamily
+     * @return
+     */
+    public OfficeTaskOptions setDocumentFamily(final DocumentFamily documentFamily) {
+        this.documentFamily = documentFamily;
+        return this;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the time by which the task must have completed, as returned by
+     * {@link System#currentTimeMillis()}. A pool refuses the task straight away with an
+     * {@link OfficeTaskRejectedException} when it cannot expect to finish it in time, and
+     * drops it from the queue once it can no longer start in time. Zero for no deadline.
+     *
+     * @param deadline
+     * @return
+     */
+    public OfficeTaskOptions setDeadline(final long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * Sets how long the task may wait for an office process before it fails, overriding the
+     * pool's task queue timeout. Zero for the pool's default.
+     *
+     * @param queueTimeout in milliseconds
+     * @return
+     */
+    public OfficeTaskOptions setQueueTimeout(final long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+        return this;
+    }
+
+    public long getExecutionTimeout() {
+        return executionTimeout;
+    }
+
+    /**
+     * Sets how long the task may run before it is aborted and its office process
+     * restarted, overriding the pool's task execution timeout. Zero for the pool's default.
+     *
+     * @param executionTimeout in milliseconds
+     * @return
+     */
+    public OfficeTaskOptions setExecutionTimeout(final long executionTimeout) {
+        this.executionTimeout = executionTimeout;
+        return this;
+    }
+
+    public long getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    /**
+     * Sets the expected cost of the task in arbitrary units, used by a pool that schedules
+     * the shortest job first. {@link org.artofsolving.jodconverter.OfficeDocumentConverter}
+     * fills this in from the input file size when it is not set. Zero if unknown.
+     *
+     * @param estimatedCost
+     * @return
+     */
+    public OfficeTaskOptions setEstimatedCost(final long estimatedCost) {
+        this.estimatedCost = estimatedCost;
+        return this;
+    }
+
+    public String getCostKey() {
+        return costKey;
+    }
+
+    /**
+     * Groups the task with others that are expected to take about as long, so that a pool
+     * can learn their duration from past executions, see {@link OfficeManager#estimate(OfficeTaskOptions)}.
+     * {@link org.artofsolving.jodconverter.OfficeDocumentConverter} fills this in from the
+     * input and output formats and the input file size when it is not set.
+     *
+     * @param costKey
+     * @return
+     */
+    public OfficeTaskOptions setCostKey(final String costKey) {
+        this.costKey = costKey;
+        return this;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent != null && idempotent.booleanValue();
+    }
+
+    /**
+     * @return whether {@link #setIdempotent(boolean)} has been called
+     */
+    public boolean isIdempotentSet() {
+        return idempotent != null;
+    }
+
+    /**
+     * Declares that running the task again has the same effect as running it once, so that
+     * a pool may retry it on another office process if its process is lost while running
+     * it. {@link org.artofsolving.jodconverter.OfficeDocumentConverter} marks conversions
+     * as idempotent when this is not set.
+     *
+     * @param idempotent
+     * @return
+     */
+    public OfficeTaskOptions setIdempotent(final boolean idempotent) {
+        this.idempotent = Boolean.valueOf(idempotent);
+        return this;
+    }
+
+    /**
+     * @return a copy of these options, e.g. to fill in defaults without changing the caller's options
+     */
+    public OfficeTaskOptions copy() {
+        OfficeTaskOptions copy = new OfficeTaskOptions();
+        copy.priority = priority;
+        copy.tenant = tenant;
+        copy.documentFamily = documentFamily;
+        copy.deadline = deadline;
+        copy.queueTimeout = queueTimeout;
+        copy.executionTimeout = executionTimeout;
+        copy.estimatedCost = estimatedCost;
+        copy.costKey = costKey;
+        copy.idempotent = idempotent;
+        return copy;
+    }
+
+}
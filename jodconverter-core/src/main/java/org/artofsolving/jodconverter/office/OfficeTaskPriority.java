@@ -0,0 +1,30 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Scheduling class of a queued {@link OfficeTask}, from most to least urgent.
+ *
+ * @since 3.01.2.00
+ */
+public enum OfficeTaskPriority {
+
+    /** a user is waiting for the result, e.g. a preview */
+    INTERACTIVE,
+
+    NORMAL,
+
+    /** bulk or background work that can tolerate queueing */
+    BATCH
+
+}
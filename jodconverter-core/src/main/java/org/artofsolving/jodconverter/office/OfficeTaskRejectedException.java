@@ -0,0 +1,45 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Thrown when a pool refuses a task at submission, because its queue is full, because
+ * the task could not be expected to complete by its deadline, or because its input is
+ * quarantined. The task has not been queued.
+ *
+ * @since 3.01.2.00
+ */
+public class OfficeTaskRejectedException extends OfficeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean retryable;
+
+    public OfficeTaskRejectedException(String message) {
+        this(message, true);
+    }
+
+    public OfficeTaskRejectedException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    /**
+     * @return whether the task may well be accepted when submitted again later, e.g. once
+     *         the queue has room; <code>false</code> for a quarantined input
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+}
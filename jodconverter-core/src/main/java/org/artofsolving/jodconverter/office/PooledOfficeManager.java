@@ -15,29 +15,75 @@ package org.artofsolving.jodconverter.office;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.artofsolving.jodconverter.document.DocumentFamily;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-class PooledOfficeManager implements OfficeManager {
+import com.sun.star.lang.DisposedException;
+
+class PooledOfficeManager implements OfficeManager, OfficeInstanceMetrics {
+
+    /**
+     * Told about every change of {@link OfficeInstanceState}, on the thread that caused it.
+     */
+    interface StateListener {
+        void stateChanged(PooledOfficeManager manager, OfficeInstanceState state);
+    }
+
+    private static final double METRICS_SMOOTHING = 0.2;
+    static final long CANCELLATION_GRACE_PERIOD = 5000L;
+    private static final int BASELINE_TASKS = 10;
 
     private final PooledOfficeManagerSettings settings;
     private final ManagedOfficeProcess managedOfficeProcess;
-    private final SuspendableThreadPoolExecutor taskExecutor;
+    private volatile SuspendableThreadPoolExecutor taskExecutor;
+    private volatile ScheduledExecutorService watchdog;
 
     private volatile boolean stopping = false;
-    private int taskCount;
+    private volatile int taskCount;
+    private volatile int recycleLimit;
+    private volatile long averageTaskDuration;
+    private volatile double failureRate;
+    private volatile DocumentFamily documentFamily;
+    private volatile long baselineTaskDuration;
+    private int baselineTasks;
+    private long baselineTotalDuration;
+    private volatile long connectTime;
+    private volatile boolean dueForRecycling;
+    private volatile int connectionLosses = 0;
+    private final AtomicReference<OfficeInstanceState> state = new AtomicReference<OfficeInstanceState>(OfficeInstanceState.STOPPED);
+    private volatile StateListener stateListener;
     private Future<?> currentTask;
 
+    // guarded by executionLock
+    private final Object executionLock = new Object();
+    private OfficeTask executingTask;
+    private long cancellationTime = 0L;
+
     private final Logger logger = LoggerFactory.getLogger(getClass().getName());
 
     private OfficeConnectionEventListener connectionEventListener = new OfficeConnectionEventListener() {
         @Override
         public void connected(final OfficeConnectionEvent event) {
             taskCount = 0;
+            averageTaskDuration = 0L;
+            failureRate = 0.0;
+            documentFamily = null;
+            baselineTaskDuration = 0L;
+            baselineTasks = 0;
+            baselineTotalDuration = 0L;
+            connectTime = System.currentTimeMillis();
+            dueForRecycling = false;
+            recycleLimit = settings.getRestartGovernor().nextRecycleLimit(settings.getMaxTasksPerProcess());
             taskExecutor.setAvailable(true);
+            setState(OfficeInstanceState.READY);
         }
         @Override
         public void disconnected(final OfficeConnectionEvent event) {
@@ -47,10 +93,17 @@ class PooledOfficeManager implements OfficeManager {
                 stopping = false;
             } else {
                 logger.warn("connection lost unexpectedly; attempting restart");
+                connectionLosses++;
+                setState(OfficeInstanceState.RESTARTING);
                 if (currentTask != null) {
                     currentTask.cancel(true);
                 }
-                managedOfficeProcess.restartDueToLostConnection();
+                managedOfficeProcess.restartDueToLostConnection(new Runnable() {
+                    @Override
+                    public void run() {
+                        setState(OfficeInstanceState.DEAD);
+                    }
+                });
             }
         }
     };
@@ -61,6 +114,7 @@ class PooledOfficeManager implements OfficeManager {
 
     public PooledOfficeManager(final PooledOfficeManagerSettings settings) {
         this.settings = settings;
+        recycleLimit = settings.getMaxTasksPerProcess();
         managedOfficeProcess = new ManagedOfficeProcess(settings);
         managedOfficeProcess.getConnection().addConnectionEventListener(connectionEventListener);
         taskExecutor = new SuspendableThreadPoolExecutor(new NamedThreadFactory("OfficeTaskThread"));
@@ -68,45 +122,410 @@ class PooledOfficeManager implements OfficeManager {
 
     @Override
     public void execute(final OfficeTask task) throws OfficeException {
+        execute(task, settings.getTaskExecutionTimeout(), null);
+    }
+
+    /**
+     * @param executionTimeout
+     *            in milliseconds; the process is restarted if the task runs for longer
+     * @param costKey
+     *            under which the duration of a successful execution is recorded, or <code>null</code>
+     */
+    void execute(final OfficeTask task, final long executionTimeout, final String costKey) throws OfficeException {
+        changeState(OfficeInstanceState.READY, OfficeInstanceState.BUSY);
+        try {
+            if (watchdog != null) {
+                executeOnCallerThread(task, executionTimeout, costKey);
+            } else {
+                executeOnTaskThread(task, executionTimeout, costKey);
+            }
+        } finally {
+            // a process that failed during the task is restarting instead
+            changeState(OfficeInstanceState.BUSY, OfficeInstanceState.READY);
+        }
+    }
+
+    private void executeOnTaskThread(final OfficeTask task, final long executionTimeout, final String costKey) throws OfficeException {
         Future<?> futureTask = taskExecutor.submit(new Runnable() {
             @Override
             public void run() {
-                if (settings.getMaxTasksPerProcess() > 0 && ++taskCount == settings.getMaxTasksPerProcess() + 1) {
-                    logger.info(String.format("reached limit of %d maxTasksPerProcess: restarting", settings.getMaxTasksPerProcess()));
-                    taskExecutor.setAvailable(false);
-                    stopping = true;
-                    managedOfficeProcess.restartAndWait();
-                    //FIXME taskCount will be 0 rather than 1 at this point
+                try {
+                    if (recycleLimit > 0 && ++taskCount == recycleLimit + 1) {
+                        // only reached when used outside a pool that recycles in the background
+                        logger.info(String.format("reached limit of %d maxTasksPerProcess: restarting", recycleLimit));
+                        restart();
+                        //FIXME taskCount will be 0 rather than 1 at this point
+                    }
+                    task.execute(managedOfficeProcess.getConnection());
+                } finally {
+                    synchronized (executionLock) {
+                        executionLock.notifyAll();
+                    }
                 }
-                task.execute(managedOfficeProcess.getConnection());
              }
          });
          currentTask = futureTask;
+         int lossesBefore = connectionLosses;
+         long startTime = System.currentTimeMillis();
+         boolean failed = true;
          try {
-             futureTask.get(settings.getTaskExecutionTimeout(), TimeUnit.MILLISECONDS);
+             awaitTask(task, futureTask, startTime + executionTimeout);
+             futureTask.get();
+             failed = false;
          } catch (TimeoutException timeoutException) {
              managedOfficeProcess.restartDueToTaskTimeout();
-             throw new OfficeException("task did not complete within timeout", timeoutException);
+             throw new OfficeProcessFailedException("task did not complete within timeout", timeoutException, true);
          } catch (ExecutionException executionException) {
-             if (executionException.getCause() instanceof OfficeException) {
+             if (isProcessLost(lossesBefore, executionException.getCause())) {
+                 throw new OfficeProcessFailedException("office process lost while executing task", executionException.getCause(), false);
+             } else if (executionException.getCause() instanceof OfficeException) {
                  throw (OfficeException) executionException.getCause();
              } else {
                  throw new OfficeException("task failed", executionException.getCause());
              }
          } catch (Exception exception) {
+             if (isProcessLost(lossesBefore, exception)) {
+                 throw new OfficeProcessFailedException("office process lost while executing task", exception, false);
+             }
              throw new OfficeException("task failed", exception);
+         } finally {
+             updateMetrics(costKey, System.currentTimeMillis() - startTime, failed);
          }
     }
 
+    /**
+     * Executes the task on the calling thread rather than on the task executor's thread,
+     * leaving the execution timeout to the watchdog.
+     */
+    private void executeOnCallerThread(final OfficeTask task, final long executionTimeout, final String costKey) throws OfficeException {
+        try {
+            taskExecutor.awaitAvailable();
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted", interruptedException);
+        }
+        if (recycleLimit > 0 && ++taskCount == recycleLimit + 1) {
+            logger.info(String.format("reached limit of %d maxTasksPerProcess: restarting", recycleLimit));
+            restart();
+        }
+        final AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> timeout = watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timedOut.set(true);
+                managedOfficeProcess.restartDueToTaskTimeout();
+            }
+        }, executionTimeout, TimeUnit.MILLISECONDS);
+        synchronized (executionLock) {
+            executingTask = task;
+            cancellationTime = 0L;
+        }
+        int lossesBefore = connectionLosses;
+        long startTime = System.currentTimeMillis();
+        boolean failed = true;
+        try {
+            task.execute(managedOfficeProcess.getConnection());
+            failed = false;
+        } catch (RuntimeException runtimeException) {
+            if (timedOut.get()) {
+                throw new OfficeProcessFailedException("task did not complete within timeout", runtimeException, true);
+            }
+            if (isProcessLost(lossesBefore, runtimeException)) {
+                throw new OfficeProcessFailedException("office process lost while executing task", runtimeException, false);
+            }
+            if (runtimeException instanceof OfficeException) {
+                throw runtimeException;
+            }
+            throw new OfficeException("task failed", runtimeException);
+        } finally {
+            timeout.cancel(false);
+            synchronized (executionLock) {
+                executingTask = null;
+            }
+            updateMetrics(costKey, System.currentTimeMillis() - startTime, failed);
+        }
+    }
+
+    /**
+     * @return whether the connection was lost since the task started, judging by the
+     *         disconnection events and by the failure itself, which may come first
+     */
+    private boolean isProcessLost(final int lossesBefore, final Throwable failure) {
+        if (connectionLosses != lossesBefore) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DisposedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes tasks on the calling thread, with execution timeouts and cancellation grace
+     * periods enforced by the given scheduler; or on the task executor's own thread if
+     * <code>null</code>.
+     */
+    void setWatchdog(final ScheduledExecutorService watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Waits for the task to finish, its deadline to pass, or the grace period of a
+     * cancellation to run out, whichever comes first.
+     */
+    private void awaitTask(final OfficeTask task, final Future<?> futureTask, final long deadline) throws InterruptedException, TimeoutException {
+        synchronized (executionLock) {
+            executingTask = task;
+            cancellationTime = 0L;
+            try {
+                while (!futureTask.isDone()) {
+                    long now = System.currentTimeMillis();
+                    long waitUntil = cancellationTime > 0L ? Math.min(deadline, cancellationTime + CANCELLATION_GRACE_PERIOD) : deadline;
+                    if (now >= waitUntil) {
+                        if (now < deadline) {
+                            logger.warn("cancelled task did not stop within grace period; restarting office process");
+                        }
+                        throw new TimeoutException();
+                    }
+                    executionLock.wait(waitUntil - now);
+                }
+            } finally {
+                executingTask = null;
+            }
+        }
+    }
+
+    /**
+     * Aborts the given task if this manager is executing it. A {@link CancellableOfficeTask}
+     * is asked to stop; if the task is still running after a grace period, the office
+     * process is restarted.
+     */
+    void cancel(final OfficeTask task) {
+        if (task instanceof CancellableOfficeTask) {
+            ((CancellableOfficeTask) task).cancel();
+        }
+        synchronized (executionLock) {
+            if (executingTask != task || cancellationTime > 0L) {
+                return;
+            }
+            cancellationTime = System.currentTimeMillis();
+            executionLock.notifyAll();
+        }
+        ScheduledExecutorService currentWatchdog = watchdog;
+        if (currentWatchdog != null) {
+            currentWatchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (executionLock) {
+                        if (executingTask != task) {
+                            return;
+                        }
+                    }
+                    logger.warn("cancelled task did not stop within grace period; restarting office process");
+                    managedOfficeProcess.restartDueToTaskTimeout();
+                }
+            }, CANCELLATION_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void updateMetrics(final String costKey, final long duration, final boolean failed) {
+        if (costKey != null && !failed && settings.getDurationModel() != null) {
+            settings.getDurationModel().record(costKey, duration);
+        }
+        if (baselineTaskDuration == 0L && !failed) {
+            baselineTotalDuration += duration;
+            if (++baselineTasks == BASELINE_TASKS) {
+                baselineTaskDuration = Math.max(baselineTotalDuration / BASELINE_TASKS, 1L);
+            }
+        }
+        averageTaskDuration = averageTaskDuration == 0L ? duration : Math.round(METRICS_SMOOTHING * duration + (1.0 - METRICS_SMOOTHING) * averageTaskDuration);
+        failureRate = METRICS_SMOOTHING * (failed ? 1.0 : 0.0) + (1.0 - METRICS_SMOOTHING) * failureRate;
+    }
+
+    @Override
+    public OfficeInstanceState getState() {
+        return state.get();
+    }
+
+    /**
+     * Records the duration of every successful task in the given model, see {@link #execute(OfficeTask, long, String)}.
+     */
+    void setDurationModel(final TaskDurationModel durationModel) {
+        settings.setDurationModel(durationModel);
+    }
+
+    void setStateListener(final StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    void setState(final OfficeInstanceState newState) {
+        if (state.getAndSet(newState) != newState) {
+            notifyStateChanged(newState);
+        }
+    }
+
+    void changeState(final OfficeInstanceState expectedState, final OfficeInstanceState newState) {
+        if (state.compareAndSet(expectedState, newState)) {
+            notifyStateChanged(newState);
+        }
+    }
+
+    private void notifyStateChanged(final OfficeInstanceState newState) {
+        StateListener listener = stateListener;
+        if (listener != null) {
+            listener.stateChanged(this, newState);
+        }
+    }
+
+    @Override
+    public int getTasksServed() {
+        return taskCount;
+    }
+
+    @Override
+    public long getAverageTaskDuration() {
+        return averageTaskDuration;
+    }
+
+    @Override
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    @Override
+    public long getBaselineTaskDuration() {
+        return baselineTaskDuration;
+    }
+
+    @Override
+    public long getUptime() {
+        return connectTime > 0L ? System.currentTimeMillis() - connectTime : 0L;
+    }
+
+    @Override
+    public long getResidentMemory() {
+        return ProcStatus.readResidentMemory(managedOfficeProcess.getPid());
+    }
+
+    /**
+     * @return the family of the document last handed to this process, or <code>null</code> if unknown
+     */
+    DocumentFamily getDocumentFamily() {
+        return documentFamily;
+    }
+
+    void setDocumentFamily(final DocumentFamily documentFamily) {
+        this.documentFamily = documentFamily;
+    }
+
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task) throws OfficeException {
+        return submit(task, new OfficeTaskOptions());
+    }
+
+    /**
+     * This manager has no queue of its own, so the task is executed right away on the
+     * calling thread, and the future returned is already done. Of the options, only the
+     * execution timeout and cost key apply.
+     */
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task, final OfficeTaskOptions options) throws OfficeException {
+        OfficeTaskFuture future = new OfficeTaskFuture(task, options);
+        future.run(this);
+        return future;
+    }
+
+    @Override
+    public OfficeLease lease(final long leaseTime) throws OfficeException {
+        return lease(leaseTime, new OfficeTaskOptions());
+    }
+
+    /**
+     * The process is not reserved for the lease: its tasks take turns with those executed
+     * directly. The options are ignored.
+     */
+    @Override
+    public OfficeLease lease(final long leaseTime, final OfficeTaskOptions options) throws OfficeException {
+        OfficeLease lease = new OfficeLease(leaseTime);
+        lease.grant(this);
+        return lease;
+    }
+
+    /**
+     * Tasks do not queue, so the queue wait is 0; the duration is the median of recent
+     * tasks with the same cost key, or else the average of all recent tasks.
+     */
+    @Override
+    public OfficeTaskEstimate estimate(final OfficeTaskOptions options) {
+        TaskDurationModel durationModel = settings.getDurationModel();
+        long expectedDuration = durationModel != null ? durationModel.getExpectedDuration(options.getCostKey()) : 0L;
+        if (expectedDuration == 0L) {
+            expectedDuration = averageTaskDuration;
+        }
+        return new OfficeTaskEstimate(expectedDuration, 0L);
+    }
+
+    long getTaskExecutionTimeout() {
+        return settings.getTaskExecutionTimeout();
+    }
+
     @Override
     public void start() throws OfficeException {
-        managedOfficeProcess.startAndWait();
+        if (taskExecutor.isShutdown()) {
+            // restarted after stop(), e.g. by an elastic pool
+            taskExecutor = new SuspendableThreadPoolExecutor(new NamedThreadFactory("OfficeTaskThread"));
+        }
+        setState(OfficeInstanceState.STARTING);
+        try {
+            managedOfficeProcess.startAndWait();
+        } catch (OfficeException officeException) {
+            setState(OfficeInstanceState.DEAD);
+            throw officeException;
+        }
+    }
+
+    /**
+     * Restarts the office process, waiting until it is connected again.
+     */
+    void restart() throws OfficeException {
+        taskExecutor.setAvailable(false);
+        stopping = true;
+        setState(OfficeInstanceState.RESTARTING);
+        try {
+            managedOfficeProcess.restartAndWait();
+        } catch (OfficeException officeException) {
+            setState(OfficeInstanceState.DEAD);
+            throw officeException;
+        }
+    }
+
+    /**
+     * Consults the recycling policy, which may read the process status, so callers should
+     * not hold a lock that other threads need.
+     *
+     * @return how many more tasks may be executed before the process has to be recycled
+     */
+    int getTasksUntilRecycle() {
+        RecyclingPolicy recyclingPolicy = settings.getRecyclingPolicy();
+        if (!dueForRecycling && recyclingPolicy != null && recyclingPolicy.shouldRecycle(this)) {
+            logger.info(String.format("recycling policy requests recycling after %d tasks", taskCount));
+            dueForRecycling = true;
+        }
+        if (dueForRecycling) {
+            return 0;
+        }
+        if (recycleLimit <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return recycleLimit - taskCount;
     }
 
     @Override
     public void stop() throws OfficeException {
         taskExecutor.setAvailable(false);
         stopping = true;
+        setState(OfficeInstanceState.STOPPED);
         taskExecutor.shutdownNow();
         managedOfficeProcess.stopAndWait();
     }
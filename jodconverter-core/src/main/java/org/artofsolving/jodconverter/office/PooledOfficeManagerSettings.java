@@ -19,6 +19,8 @@ class PooledOfficeManagerSettings extends ManagedOfficeProcessSettings {
 
     private long taskExecutionTimeout = DEFAULT_TASK_EXECUTION_TIMEOUT;
     private int maxTasksPerProcess = DEFAULT_MAX_TASKS_PER_PROCESS;
+    private RecyclingPolicy recyclingPolicy;
+    private TaskDurationModel durationModel;
 
     public PooledOfficeManagerSettings(UnoUrl unoUrl) {
         super(unoUrl);
@@ -40,4 +42,20 @@ class PooledOfficeManagerSettings extends ManagedOfficeProcessSettings {
         this.maxTasksPerProcess = maxTasksPerProcess;
     }
 
+    public RecyclingPolicy getRecyclingPolicy() {
+        return recyclingPolicy;
+    }
+
+    public void setRecyclingPolicy(RecyclingPolicy recyclingPolicy) {
+        this.recyclingPolicy = recyclingPolicy;
+    }
+
+    public TaskDurationModel getDurationModel() {
+        return durationModel;
+    }
+
+    public void setDurationModel(TaskDurationModel durationModel) {
+        this.durationModel = durationModel;
+    }
+
 }
@@ -0,0 +1,255 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Queue of pending tasks ordered by {@link OfficeTaskPriority}.
+ * <p>
+ * Tasks of the same priority are served in submission order, or cheapest first (see
+ * {@link OfficeTaskOptions#setEstimatedCost(long)}) with shortest-job-first enabled; tasks
+ * of unknown cost count as cheapest. To keep expensive tasks from starving, the oldest
+ * task of a priority goes first once it has waited for <code>shortestJobFirstMaxWait</code>
+ * milliseconds. To keep lower priorities from starving, a waiting task is promoted by one
+ * priority level for every <code>agingInterval</code> milliseconds it has spent in the queue.
+ * <p>
+ * Tasks are also indexed by estimated cost and by queue deadline, so that picking the
+ * cheapest task and finding expired ones take no walk through a long backlog.
+ * <p>
+ * Not thread-safe; callers are expected to guard access, see {@link FairShareTaskQueue}.
+ */
+class PriorityTaskQueue {
+
+    /**
+     * A queued task with the keys it is sorted by, taken when it was queued so that
+     * later changes to its options cannot reorder it in place.
+     */
+    private static class Entry {
+        private final OfficeTaskFuture future;
+        private final OfficeTaskPriority priority;
+        private final long order;
+        private final long estimatedCost;
+        private final long queueDeadline;
+
+        public Entry(final OfficeTaskFuture future, final long order) {
+            this.future = future;
+            this.priority = future.getOptions().getPriority();
+            this.order = order;
+            this.estimatedCost = future.getOptions().getEstimatedCost();
+            this.queueDeadline = future.getQueueDeadline();
+        }
+    }
+
+    private static final Comparator<Entry> QUEUE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            return compareLongs(entry1.order, entry2.order);
+        }
+    };
+
+    private static final Comparator<Entry> COST_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            int result = compareLongs(entry1.estimatedCost, entry2.estimatedCost);
+            return result != 0 ? result : compareLongs(entry1.order, entry2.order);
+        }
+    };
+
+    private static final Comparator<Entry> QUEUE_DEADLINE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            int result = compareLongs(entry1.queueDeadline, entry2.queueDeadline);
+            return result != 0 ? result : compareLongs(entry1.order, entry2.order);
+        }
+    };
+
+    private final long agingInterval;
+    private final long shortestJobFirstMaxWait;
+    private final Map<OfficeTaskPriority, TreeSet<Entry>> queues = new EnumMap<OfficeTaskPriority, TreeSet<Entry>>(OfficeTaskPriority.class);
+    private final Map<OfficeTaskPriority, TreeSet<Entry>> queuesByCost = new EnumMap<OfficeTaskPriority, TreeSet<Entry>>(OfficeTaskPriority.class);
+    private final TreeSet<Entry> byQueueDeadline = new TreeSet<Entry>(QUEUE_DEADLINE_ORDER);
+    private final Map<OfficeTaskFuture, Entry> entries = new HashMap<OfficeTaskFuture, Entry>();
+    // add() counts up and addFirst() counts down, so entries sort in queue order
+    private long lastOrder = 0L;
+    private long firstOrder = 0L;
+
+    /**
+     * @param agingInterval
+     *            milliseconds of waiting after which a task is promoted by one level; zero or less disables aging
+     */
+    public PriorityTaskQueue(final long agingInterval) {
+        this(agingInterval, 0L);
+    }
+
+    /**
+     * @param agingInterval
+     *            milliseconds of waiting after which a task is promoted by one level; zero or less disables aging
+     * @param shortestJobFirstMaxWait
+     *            milliseconds of waiting after which a task is served regardless of its cost; zero or less
+     *            keeps submission order
+     */
+    public PriorityTaskQueue(final long agingInterval, final long shortestJobFirstMaxWait) {
+        this.agingInterval = agingInterval;
+        this.shortestJobFirstMaxWait = shortestJobFirstMaxWait;
+        for (OfficeTaskPriority priority : OfficeTaskPriority.values()) {
+            queues.put(priority, new TreeSet<Entry>(QUEUE_ORDER));
+            if (shortestJobFirstMaxWait > 0L) {
+                queuesByCost.put(priority, new TreeSet<Entry>(COST_ORDER));
+            }
+        }
+    }
+
+    public void add(final OfficeTaskFuture future) {
+        addEntry(new Entry(future, ++lastOrder));
+    }
+
+    /**
+     * Queues a task ahead of the others of its priority, e.g. to retry it.
+     */
+    public void addFirst(final OfficeTaskFuture future) {
+        addEntry(new Entry(future, --firstOrder));
+    }
+
+    private void addEntry(final Entry entry) {
+        queues.get(entry.priority).add(entry);
+        if (shortestJobFirstMaxWait > 0L) {
+            queuesByCost.get(entry.priority).add(entry);
+        }
+        byQueueDeadline.add(entry);
+        entries.put(entry.future, entry);
+    }
+
+    private void removeEntry(final Entry entry) {
+        queues.get(entry.priority).remove(entry);
+        if (shortestJobFirstMaxWait > 0L) {
+            queuesByCost.get(entry.priority).remove(entry);
+        }
+        byQueueDeadline.remove(entry);
+        entries.remove(entry.future);
+    }
+
+    /**
+     * @return the most urgent task that has not been cancelled, or <code>null</code> if there is none
+     */
+    public OfficeTaskFuture poll() {
+        long now = System.currentTimeMillis();
+        while (!entries.isEmpty()) {
+            TreeSet<Entry> best = null;
+            long bestLevel = Long.MAX_VALUE;
+            for (TreeSet<Entry> queue : queues.values()) {
+                if (queue.isEmpty()) {
+                    continue;
+                }
+                Entry head = queue.first();
+                long level = head.priority.ordinal();
+                if (agingInterval > 0L) {
+                    level -= (now - head.future.getSubmitTime()) / agingInterval;
+                }
+                if (level < bestLevel || (level == bestLevel && head.future.getSubmitTime() < best.first().future.getSubmitTime())) {
+                    best = queue;
+                    bestLevel = level;
+                }
+            }
+            Entry next = selectNext(best, now);
+            removeEntry(next);
+            if (!next.future.isDone()) {
+                return next.future;
+            }
+        }
+        return null;
+    }
+
+    private Entry selectNext(final TreeSet<Entry> queue, final long now) {
+        if (shortestJobFirstMaxWait <= 0L || now - queue.first().future.getSubmitTime() >= shortestJobFirstMaxWait) {
+            return queue.first();
+        }
+        return queuesByCost.get(queue.first().priority).first();
+    }
+
+    /**
+     * @return <code>true</code> if the task was queued
+     */
+    public boolean remove(final OfficeTaskFuture future) {
+        Entry entry = entries.get(future);
+        if (entry == null) {
+            return false;
+        }
+        removeEntry(entry);
+        return true;
+    }
+
+    /**
+     * @return the submit time of the task that has been waiting longest, or <code>-1</code> if the queue is empty
+     */
+    public long getOldestSubmitTime() {
+        long oldest = -1L;
+        for (TreeSet<Entry> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                long submitTime = queue.first().future.getSubmitTime();
+                if (oldest < 0L || submitTime < oldest) {
+                    oldest = submitTime;
+                }
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * @return the earliest queue deadline of the queued tasks, or <code>-1</code> if the queue is empty
+     */
+    public long getEarliestQueueDeadline() {
+        return byQueueDeadline.isEmpty() ? -1L : byQueueDeadline.first().queueDeadline;
+    }
+
+    /**
+     * Removes the tasks whose queue deadline is at or before the given time.
+     */
+    public List<OfficeTaskFuture> removeExpired(final long time) {
+        List<OfficeTaskFuture> removed = new ArrayList<OfficeTaskFuture>();
+        while (!byQueueDeadline.isEmpty() && byQueueDeadline.first().queueDeadline <= time) {
+            Entry entry = byQueueDeadline.first();
+            removeEntry(entry);
+            removed.add(entry.future);
+        }
+        return removed;
+    }
+
+    public List<OfficeTaskFuture> clear() {
+        List<OfficeTaskFuture> removed = new ArrayList<OfficeTaskFuture>();
+        for (TreeSet<Entry> queue : queues.values()) {
+            for (Entry entry : queue) {
+                removed.add(entry.future);
+            }
+            queue.clear();
+        }
+        byQueueDeadline.clear();
+        entries.clear();
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static int compareLongs(final long value1, final long value2) {
+        return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,77 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import org.artofsolving.jodconverter.process.ProcessManager;
+
+/**
+ * Reads process statistics from <code>/proc/&lt;pid&gt;/status</code> where the platform provides it.
+ */
+class ProcStatus {
+
+    private static final String RESIDENT_MEMORY_FIELD = "VmRSS:";
+
+    private ProcStatus() {
+        throw new AssertionError("utility class must not be instantiated");
+    }
+
+    /**
+     * @return the resident memory of the process in bytes, or <code>-1</code> if it cannot be determined
+     */
+    public static long readResidentMemory(final long pid) {
+        if (pid == ProcessManager.PID_UNKNOWN || pid == ProcessManager.PID_NOT_FOUND) {
+            return -1L;
+        }
+        File statusFile = new File("/proc/" + pid + "/status");
+        if (!statusFile.isFile()) {
+            return -1L;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(statusFile));
+            return parseResidentMemory(reader);
+        } catch (IOException ioException) {
+            return -1L;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ioException) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    static long parseResidentMemory(final BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(RESIDENT_MEMORY_FIELD)) {
+                String[] fields = line.substring(RESIDENT_MEMORY_FIELD.length()).trim().split("\\s+");
+                try {
+                    long value = Long.parseLong(fields[0]);
+                    return fields.length > 1 && "kB".equals(fields[1]) ? value * 1024L : value;
+                } catch (NumberFormatException numberFormatException) {
+                    return -1L;
+                }
+            }
+        }
+        return -1L;
+    }
+
+}
@@ -13,30 +13,204 @@
 package org.artofsolving.jodconverter.office;
 
 import java.io.File;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.artofsolving.jodconverter.document.DocumentFamily;
 import org.artofsolving.jodconverter.process.ProcessManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * {@link OfficeManager} that executes tasks on a pool of office processes.
+ * <p>
+ * The initial office processes are started in parallel (subject to the restart
+ * governor's limit on concurrent starts), and {@link #start()} returns as soon as the
+ * first of them is connected. A process that cannot be started is logged and started
+ * again later, with a growing delay between attempts.
+ * <p>
+ * With caller-thread execution, tasks run directly on the thread that called
+ * {@link #execute(OfficeTask)} or waits in {@link OfficeTaskFuture#join()}, or on the
+ * pool's runner threads when no thread waits for them, instead of being handed to a
+ * thread of their {@link PooledOfficeManager}; execution timeouts are then enforced by a
+ * single watchdog thread for the whole pool. A task dispatched before its submitter
+ * starts to wait runs on a runner thread.
+ * <p>
+ * With lazy start, {@link #start()} does not start any office process; processes are
+ * started as tasks arrive, optionally with one prewarmed in the background.
+ * <p>
+ * When the minimum number of instances is lower than the number of configured
+ * {@link UnoUrl}s the pool is elastic: only the minimum is started up front, another
+ * process is started whenever a task has been queued for longer than the scale-up queue
+ * wait, and processes above the minimum are stopped again after being idle for the
+ * instance idle timeout.
+ * <p>
+ * Office processes are recycled after <code>maxTasksPerProcess</code> tasks without
+ * holding up a task: when a process comes within the recycle margin of its limit, a
+ * replacement is started on a stopped slot (a spare, or unused capacity of an elastic
+ * pool) while the old process keeps serving. Once the replacement is connected it joins
+ * the pool and the old process is stopped as soon as it is idle. Without a free slot the
+ * old process is restarted in the background once it reaches its limit.
+ * <p>
+ * Tasks that declare their {@link DocumentFamily} go to an idle process that last
+ * handled the same family when there is one. If only processes of other families are
+ * idle while one of the same family is busy, the task may wait up to the affinity wait
+ * for it before taking any idle process; it waits on a runner thread, so that other
+ * tasks are dispatched meanwhile, and at most one task waits per busy process.
+ * <p>
+ * With admission control, a task is refused with an {@link OfficeTaskRejectedException}
+ * at submission when the expected queue wait (estimated from recent task durations and
+ * the current load) already exceeds the task queue timeout or the task's deadline. A task
+ * is also refused when the queue holds <code>maxQueueLength</code> tasks.
+ * <p>
+ * The duration of every successful task is recorded under its cost key, so that
+ * {@link #estimate(OfficeTaskOptions)} and the deadline check of admission control can
+ * go by how long similar tasks took.
+ * <p>
+ * With hedged execution, a {@link HedgeableOfficeTask} that runs longer than the hedge
+ * percentile of the recent durations of its cost key is started a second time on an idle
+ * office process, provided no queued task is waiting for one. The first run to succeed
+ * wins and the other one is cancelled.
+ * <p>
+ * With quarantine, an input (see {@link FingerprintedOfficeTask}) whose tasks have made an
+ * office process crash or time out the given number of times is refused at submission,
+ * so that a client retrying a malformed document cannot take down one process after
+ * another.
+ * <p>
+ * With process failure retries, an idempotent task whose office process is lost while
+ * running it is queued again ahead of the others rather than failed, and goes to another
+ * process if one is idle.
+ * <p>
+ * Tasks only go to processes that are ready: a process that is restarting after a crash,
+ * a timeout or for recycling rejoins the pool once it has reconnected, and one that could
+ * not be restarted is started afresh when the pool needs another process.
+ */
 class ProcessPoolOfficeManager implements OfficeManager {
-    private final BlockingQueue<PooledOfficeManager> pool;
+    private static final long IDLE_CHECK_INTERVAL = 1000L;
+
+    private final IdleManagerPool pool;
     private final PooledOfficeManager[] pooledManagers;
     private final OfficeVersion officeVersion;
     private final long taskQueueTimeout;
+    private final FairShareTaskQueue taskQueue;
+    private final int minInstances;
+    private final int maxInstances;
+    private final long instanceIdleTimeout;
+    private final long scaleUpQueueWait;
+    private final int recycleMargin;
+    private final long affinityWait;
+    private final AdmissionControl admissionControl;
+    private final TaskDurationModel durationModel = new TaskDurationModel();
+    private final RestartGovernor restartGovernor;
+    private final boolean lazyStart;
+    private final boolean prewarm;
+    private final boolean callerThreadExecution;
+    private final int hedgePercentile;
+    private final QuarantineRegistry quarantine;
+    private final int processFailureRetries;
+
+    // instance bookkeeping, all guarded by stoppedManagers
+    private final List<PooledOfficeManager> stoppedManagers = new ArrayList<PooledOfficeManager>();
+    private int startingInstances = 0;
+    private int consecutiveStartFailures = 0;
+    private long nextStartAttempt = 0L;
+    private final Set<PooledOfficeManager> retiringManagers = new HashSet<PooledOfficeManager>();
+    private final Set<PooledOfficeManager> replacedManagers = new HashSet<PooledOfficeManager>();
+    private final Set<PooledOfficeManager> exhaustedManagers = new HashSet<PooledOfficeManager>();
+    private final Set<PooledOfficeManager> restartingManagers = new HashSet<PooledOfficeManager>();
 
+    private final Map<PooledOfficeManager, Long> idleSince = new ConcurrentHashMap<PooledOfficeManager, Long>();
+    private final Set<PooledOfficeManager> busyManagers = Collections.newSetFromMap(new ConcurrentHashMap<PooledOfficeManager, Boolean>());
+    // tasks waiting on a runner thread for a busy manager of their document family
+    private final Map<DocumentFamily, Integer> affinityWaits = new HashMap<DocumentFamily, Integer>();
+
+    private ExecutorService dispatcher;
+    private ExecutorService taskRunner;
+    private ScheduledExecutorService scaler;
+    private ExecutorService lifecycleExecutor;
+    private ScheduledExecutorService hedgeScheduler;
+    private ScheduledExecutorService watchdog;
     private volatile boolean running = false;
 
     private final Logger logger = LoggerFactory.getLogger(ProcessPoolOfficeManager.class.getName());
 
+    /**
+     * Holds back processes that are restarting until they are ready again.
+     */
+    private final PooledOfficeManager.StateListener stateListener = new PooledOfficeManager.StateListener() {
+        @Override
+        public void stateChanged(final PooledOfficeManager manager, final OfficeInstanceState state) {
+            synchronized (stoppedManagers) {
+                if (state == OfficeInstanceState.RESTARTING && pool.remove(manager)) {
+                    logger.info("idle office process is restarting; holding it back until it is ready");
+                    idleSince.remove(manager);
+                    restartingManagers.add(manager);
+                } else if (state == OfficeInstanceState.READY && restartingManagers.remove(manager)) {
+                    releaseManager(manager);
+                } else if (state == OfficeInstanceState.DEAD && restartingManagers.remove(manager)) {
+                    logger.warn("office process could not be restarted; starting it afresh when needed");
+                    stoppedManagers.add(manager);
+                }
+            }
+        }
+    };
+
     public ProcessPoolOfficeManager(final File officeHome, final UnoUrl[] unoUrls, final String[] runAsArgs, final File templateProfileDir, final File workDir,
-            final long retryTimeout, final long taskQueueTimeout, final long taskExecutionTimeout, final int maxTasksPerProcess,
-            final ProcessManager processManager, final boolean useGnuStyleLongOptions) {
-		this.taskQueueTimeout = taskQueueTimeout;
-        pool = new ArrayBlockingQueue<PooledOfficeManager>(unoUrls.length);
-        pooledManagers = new PooledOfficeManager[unoUrls.length];
+            final long retryTimeout, final long taskExecutionTimeout, final int maxTasksPerProcess,
+            final ProcessManager processManager, final boolean useGnuStyleLongOptions, final ProcessPoolOfficeManagerSettings poolSettings) {
+        this(createPooledManagers(officeHome, unoUrls, runAsArgs, templateProfileDir, workDir, retryTimeout, taskExecutionTimeout, maxTasksPerProcess,
+                processManager, useGnuStyleLongOptions, poolSettings), new OfficeVersionDetector(officeHome).getVersion(), poolSettings);
+        logger.info("ProcessManager implementation is " + processManager.getClass().getSimpleName());
+    }
+
+    /**
+     * Pools the given managers, e.g. fakes in tests.
+     */
+    ProcessPoolOfficeManager(final PooledOfficeManager[] pooledManagers, final OfficeVersion officeVersion, final ProcessPoolOfficeManagerSettings poolSettings) {
+		this.taskQueueTimeout = poolSettings.getTaskQueueTimeout();
+        taskQueue = new FairShareTaskQueue(poolSettings.getTaskPriorityAgingInterval(), poolSettings.getTenantWeights(), poolSettings.getMaxConcurrentTasksPerTenant(),
+                poolSettings.getMaxQueueLength(), poolSettings.getShortestJobFirstMaxWait());
+        admissionControl = poolSettings.isAdmissionControl() ? new AdmissionControl() : null;
+        maxInstances = pooledManagers.length - poolSettings.getSpareInstances();
+        minInstances = Math.min(poolSettings.getMinInstances(), maxInstances);
+        recycleMargin = poolSettings.getRecycleMargin();
+        instanceIdleTimeout = poolSettings.getInstanceIdleTimeout();
+        scaleUpQueueWait = poolSettings.getScaleUpQueueWait();
+        affinityWait = poolSettings.getAffinityWait();
+        restartGovernor = poolSettings.getRestartGovernor();
+        lazyStart = poolSettings.isLazyStart();
+        prewarm = poolSettings.isPrewarm();
+        callerThreadExecution = poolSettings.isCallerThreadExecution();
+        hedgePercentile = poolSettings.getHedgePercentile();
+        processFailureRetries = poolSettings.getProcessFailureRetries();
+        quarantine = poolSettings.getQuarantineStrikes() > 0 ? new QuarantineRegistry(poolSettings.getQuarantineStrikes()) : null;
+        pool = new IdleManagerPool(poolSettings.getDispatchPolicy());
+        this.pooledManagers = pooledManagers;
+        for (PooledOfficeManager pooledManager : pooledManagers) {
+            pooledManager.setDurationModel(durationModel);
+            pooledManager.setStateListener(stateListener);
+        }
+        this.officeVersion = officeVersion;
+    }
+
+    private static PooledOfficeManager[] createPooledManagers(final File officeHome, final UnoUrl[] unoUrls, final String[] runAsArgs, final File templateProfileDir,
+            final File workDir, final long retryTimeout, final long taskExecutionTimeout, final int maxTasksPerProcess, final ProcessManager processManager,
+            final boolean useGnuStyleLongOptions, final ProcessPoolOfficeManagerSettings poolSettings) {
+        PooledOfficeManager[] pooledManagers = new PooledOfficeManager[unoUrls.length];
         for (int i = 0; i < unoUrls.length; i++) {
             PooledOfficeManagerSettings settings = new PooledOfficeManagerSettings(unoUrls[i]);
             settings.setRunAsArgs(runAsArgs);
@@ -48,66 +222,919 @@ class ProcessPoolOfficeManager implements OfficeManager {
             settings.setMaxTasksPerProcess(maxTasksPerProcess);
             settings.setProcessManager(processManager);
             settings.setUseGnuStyleLongOptions(useGnuStyleLongOptions);
+            settings.setRestartGovernor(poolSettings.getRestartGovernor());
+            settings.setRecyclingPolicy(poolSettings.getRecyclingPolicy());
             pooledManagers[i] = new PooledOfficeManager(settings);
         }
-
-        OfficeVersionDetector versionDetector = new OfficeVersionDetector(officeHome);
-        officeVersion = versionDetector.getVersion();
-        logger.info("ProcessManager implementation is " + processManager.getClass().getSimpleName());
+        return pooledManagers;
     }
 
     @Override
     public synchronized void start() throws OfficeException {
+        synchronized (stoppedManagers) {
+            stoppedManagers.clear();
+            retiringManagers.clear();
+            replacedManagers.clear();
+            exhaustedManagers.clear();
+            restartingManagers.clear();
+            startingInstances = 0;
+            consecutiveStartFailures = 0;
+            nextStartAttempt = 0L;
+        }
+        // one thread per manager running a task, and one per task waiting for a busy manager of its family
+        taskRunner = Executors.newFixedThreadPool(affinityWait > 0L ? 2 * pooledManagers.length : pooledManagers.length, new NamedThreadFactory("OfficeTaskRunnerThread"));
+        dispatcher = Executors.newSingleThreadExecutor(new NamedThreadFactory("OfficeTaskDispatcherThread"));
+        scaler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("OfficePoolScalerThread"));
+        // starts and restarts take seconds; they must not hold up the scaler's periodic checks
+        lifecycleExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("OfficeProcessLifecycleThread"));
+        if (hedgePercentile > 0) {
+            // hedges are due while tasks run late, which must not wait for the scaler either
+            hedgeScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("OfficeHedgeTimerThread"));
+        }
+        if (callerThreadExecution) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("OfficeWatchdogThread"));
+        }
         for (PooledOfficeManager pooledManager : pooledManagers) {
-            pooledManager.start();
-            releaseManager(pooledManager);
+            pooledManager.setWatchdog(watchdog);
         }
         running = true;
+        startInitialInstances();
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                dispatchTasks();
+            }
+        });
+        scaler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (!lazyStart && getActiveInstancesBelowMinimum() > 0 && canScaleUp()) {
+                    scaleUp("replacing an office process that could not be started");
+                }
+                if (minInstances < maxInstances && instanceIdleTimeout > 0L) {
+                    stopIdleInstances();
+                }
+            }
+        }, IDLE_CHECK_INTERVAL, IDLE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the first <code>minInstances</code> office processes in parallel and returns
+     * as soon as one of them is connected. The others join the pool as they connect; those
+     * that fail are started again later.
+     * <p>
+     * With lazy start, only schedules the prewarmed process if any.
+     *
+     * @throws OfficeException if none of them could be started
+     */
+    private void startInitialInstances() throws OfficeException {
+        int initialInstances = lazyStart ? 0 : minInstances;
+        List<PooledOfficeManager> initialManagers = new ArrayList<PooledOfficeManager>();
+        synchronized (stoppedManagers) {
+            for (int i = 0; i < pooledManagers.length; i++) {
+                if (i < initialInstances) {
+                    initialManagers.add(pooledManagers[i]);
+                    startingInstances++;
+                } else {
+                    stoppedManagers.add(pooledManagers[i]);
+                }
+            }
+        }
+        if (initialManagers.isEmpty()) {
+            if (lazyStart && prewarm && canScaleUp()) {
+                scaleUp("prewarming");
+            }
+            return;
+        }
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final AtomicInteger pendingStarts = new AtomicInteger(initialManagers.size());
+        final AtomicInteger successfulStarts = new AtomicInteger(0);
+        ExecutorService starter = Executors.newFixedThreadPool(initialManagers.size(), new NamedThreadFactory("OfficeStartupThread"));
+        for (final PooledOfficeManager manager : initialManagers) {
+            starter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (startInstance(manager)) {
+                        successfulStarts.incrementAndGet();
+                        firstStarted.countDown();
+                    }
+                    if (pendingStarts.decrementAndGet() == 0) {
+                        firstStarted.countDown();
+                    }
+                }
+            });
+        }
+        starter.shutdown();
+        try {
+            firstStarted.await();
+        } catch (InterruptedException interruptedException) {
+            stop();
+            throw new OfficeException("interrupted", interruptedException);
+        }
+        if (successfulStarts.get() == 0) {
+            stop();
+            throw new OfficeException("could not start any office process");
+        }
     }
 
+    /**
+     * With caller-thread execution, the task still waits in the queue like a submitted one,
+     * but once a manager is free for it the task runs on the calling thread.
+     */
     @Override
     public void execute(final OfficeTask task) throws IllegalStateException, OfficeException {
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        if (callerThreadExecution) {
+            // also when the task is dispatched straight away
+            future.reserveForCurrentThread();
+        }
+        submit(future);
+        try {
+            future.join();
+        } catch (OfficeException officeException) {
+            if (callerThreadExecution && officeException.getCause() instanceof InterruptedException) {
+                // the caller gives up on the task
+                future.cancel(true);
+            }
+            throw officeException;
+        }
+    }
+
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task) throws IllegalStateException {
+        return submit(task, new OfficeTaskOptions());
+    }
+
+    @Override
+    public OfficeTaskFuture submit(final OfficeTask task, final OfficeTaskOptions options) throws IllegalStateException {
+        return submit(new OfficeTaskFuture(task, options));
+    }
+
+    private OfficeTaskFuture submit(final OfficeTaskFuture future) throws IllegalStateException {
         if (!running) {
             throw new IllegalStateException("this OfficeManager is currently stopped");
         }
-        PooledOfficeManager manager = null;
-        try {
-            manager = acquireManager();
-            if (manager == null) {
-                throw new OfficeException("no office manager available");
+        OfficeTask task = future.getTask();
+        OfficeTaskOptions options = future.getOptions();
+        if (quarantine != null && task instanceof FingerprintedOfficeTask) {
+            if (isQuarantined((FingerprintedOfficeTask) task)) {
+                future.fail(new OfficeTaskRejectedException(String.format("input is quarantined after making office processes fail %d times", quarantine.getMaxStrikes()), false));
+                return future;
             }
-            manager.execute(task);
-        } finally {
-            if (manager != null) {
-                releaseManager(manager);
+            future.addListener(new QuarantineListener(future));
+        }
+        long queueDeadline = future.getSubmitTime() + (options.getQueueTimeout() > 0L ? options.getQueueTimeout() : taskQueueTimeout);
+        if (admissionControl != null) {
+            if (options.getDeadline() > 0L) {
+                queueDeadline = Math.min(queueDeadline, options.getDeadline() - getExpectedDuration(options));
+            }
+            long expectedWait = admissionControl.estimateQueueWait(taskQueue.size(), busyManagers.size(), maxInstances);
+            if (future.getSubmitTime() + expectedWait > queueDeadline) {
+                future.fail(new OfficeTaskRejectedException(String.format("task cannot be served in time: expected queue wait is %d ms", expectedWait)));
+                return future;
+            }
+        } else if (options.getDeadline() > 0L) {
+            queueDeadline = Math.min(queueDeadline, options.getDeadline());
+        }
+        future.setQueueDeadline(queueDeadline);
+        if (callerThreadExecution && !(task instanceof OfficeLease.Request)) {
+            // a lease is held on a runner thread until its holder releases it
+            future.runOnJoiningThread(taskRunner);
+        }
+        if (!taskQueue.add(future)) {
+            future.fail(new OfficeTaskRejectedException("task queue is full"));
+            return future;
+        }
+        final OfficeTaskFuture queuedFuture = future;
+        future.addListener(new OfficeTaskListener() {
+            @Override
+            public void taskCompleted(final OfficeTask task) {
+                // nothing to clean up
+            }
+            @Override
+            public void taskFailed(final OfficeTask task, final OfficeException exception) {
+                if (queuedFuture.isCancelled()) {
+                    taskQueue.remove(queuedFuture);
+                }
+            }
+        });
+        return future;
+    }
+
+    private boolean isQuarantined(final FingerprintedOfficeTask task) {
+        if (!quarantine.hasStrikes()) {
+            return false;
+        }
+        String fingerprint = task.getInputFingerprint();
+        return fingerprint != null && quarantine.isQuarantined(fingerprint);
+    }
+
+    /**
+     * Gives the input of a task a strike when its office process crashed or timed out,
+     * and clears its strikes when it succeeded.
+     */
+    private class QuarantineListener implements OfficeTaskListener {
+        private final OfficeTaskFuture future;
+
+        public QuarantineListener(final OfficeTaskFuture future) {
+            this.future = future;
+        }
+
+        @Override
+        public void taskCompleted(final OfficeTask task) {
+            if (quarantine.hasStrikes()) {
+                String fingerprint = ((FingerprintedOfficeTask) task).getInputFingerprint();
+                if (fingerprint != null) {
+                    quarantine.clearStrikes(fingerprint);
+                }
+            }
+        }
+
+        @Override
+        public void taskFailed(final OfficeTask task, final OfficeException exception) {
+            if (!(exception instanceof OfficeProcessFailedException) || future.isCancelled()) {
+                return;
             }
+            String fingerprint = ((FingerprintedOfficeTask) task).getInputFingerprint();
+            if (fingerprint != null) {
+                int strikes = quarantine.recordStrike(fingerprint);
+                logger.warn(String.format("input %s made an office process fail (strike %d of %d)", fingerprint, strikes, quarantine.getMaxStrikes()));
+            }
+        }
+    }
+
+    @Override
+    public OfficeLease lease(final long leaseTime) throws OfficeException {
+        return lease(leaseTime, new OfficeTaskOptions());
+    }
+
+    /**
+     * The lease request waits in the queue like a task and is subject to the same
+     * priorities, tenant shares and admission control. A request that the caller stops
+     * waiting for, e.g. when interrupted, is withdrawn.
+     */
+    @Override
+    public OfficeLease lease(final long leaseTime, final OfficeTaskOptions options) throws OfficeException {
+        OfficeLease lease = new OfficeLease(leaseTime);
+        OfficeTaskFuture future = submit(lease.newRequest(), options);
+        try {
+            future.join();
+        } catch (OfficeException officeException) {
+            future.cancel(false);
+            // in case it was granted all the same
+            lease.release();
+            throw officeException;
+        }
+        return lease;
+    }
+
+    /**
+     * The queue wait is estimated by the admission control, so it is 0 without it.
+     */
+    @Override
+    public OfficeTaskEstimate estimate(final OfficeTaskOptions options) {
+        long queueWait = admissionControl != null ? admissionControl.estimateQueueWait(taskQueue.size(), busyManagers.size(), maxInstances) : 0L;
+        return new OfficeTaskEstimate(getExpectedDuration(options), queueWait);
+    }
+
+    /**
+     * @return the median duration of recent tasks with the same cost key, or else the average of all recent tasks
+     */
+    private long getExpectedDuration(final OfficeTaskOptions options) {
+        long expectedDuration = durationModel.getExpectedDuration(options.getCostKey());
+        if (expectedDuration == 0L && admissionControl != null) {
+            expectedDuration = admissionControl.getAverageServiceTime();
         }
+        return expectedDuration;
     }
 
     @Override
     public synchronized void stop() throws OfficeException {
         running = false;
         logger.info("stopping");
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+        if (scaler != null) {
+            scaler.shutdownNow();
+        }
+        if (lifecycleExecutor != null) {
+            lifecycleExecutor.shutdownNow();
+        }
+        if (hedgeScheduler != null) {
+            hedgeScheduler.shutdownNow();
+        }
         pool.clear();
+        idleSince.clear();
+        busyManagers.clear();
+        for (OfficeTaskFuture pendingTask : taskQueue.clear()) {
+            pendingTask.fail(new OfficeException("this OfficeManager is currently stopped"));
+        }
         for (PooledOfficeManager pooledManager : pooledManagers) {
+            synchronized (stoppedManagers) {
+                if (stoppedManagers.contains(pooledManager)) {
+                    continue;
+                }
+            }
             pooledManager.stop();
         }
+        if (taskRunner != null) {
+            taskRunner.shutdownNow();
+        }
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
         logger.info("stopped");
     }
 
-    private PooledOfficeManager acquireManager() {
+    /**
+     * Hands queued tasks to the runner threads as office managers become available,
+     * so that callers of {@link #submit(OfficeTask)} never wait for a manager themselves.
+     * <p>
+     * A task is only picked once a manager is free, so that it is chosen by priority at the
+     * moment it can actually run; the manager is then chosen for the task. A task that is to
+     * wait for a busy manager of its document family waits on a runner thread, so that other
+     * tasks are dispatched in the meantime.
+     */
+    private void dispatchTasks() {
+        while (running) {
+            final OfficeTaskFuture future;
+            try {
+                awaitManagerForQueuedTask();
+                future = taskQueue.poll();
+            } catch (InterruptedException interruptedException) {
+                return;
+            }
+            if (future == null) {
+                // cancelled in the meantime
+                continue;
+            }
+            PooledOfficeManager manager;
+            try {
+                manager = dispatchManager(future);
+            } catch (InterruptedException interruptedException) {
+                taskQueue.taskFinished(future);
+                future.fail(new OfficeException("this OfficeManager is currently stopped"));
+                return;
+            }
+            if (manager == null) {
+                // waits for a manager of its family on a runner thread
+                continue;
+            }
+            Runnable runner = createRunner(future, manager);
+            if (!future.handOver(runner)) {
+                taskRunner.execute(runner);
+            }
+        }
+    }
+
+    /**
+     * Takes an idle manager for a task, unless it is to wait for a busy manager of its
+     * document family.
+     *
+     * @return <code>null</code> if the task waits for a manager on a runner thread
+     */
+    private PooledOfficeManager dispatchManager(final OfficeTaskFuture future) throws InterruptedException {
+        DocumentFamily documentFamily = future.getOptions().getDocumentFamily();
+        PooledOfficeManager avoid = (PooledOfficeManager) future.getFailedManager();
+        if (documentFamily == null || !startAffinityWait(documentFamily)) {
+            return acquireManager(documentFamily, avoid);
+        }
+        PooledOfficeManager manager;
         try {
-            return pool.poll(taskQueueTimeout, TimeUnit.MILLISECONDS);
+            // one of the same family may be idle after all
+            manager = pool.poll(documentFamily, avoid, affinityWait, 0L, TimeUnit.MILLISECONDS);
         } catch (InterruptedException interruptedException) {
-            throw new OfficeException("interrupted", interruptedException);
+            endAffinityWait(documentFamily);
+            throw interruptedException;
         }
+        if (manager != null) {
+            endAffinityWait(documentFamily);
+        } else {
+            awaitAffinity(future);
+        }
+        return manager;
     }
 
-    private void releaseManager(final PooledOfficeManager manager) {
+    /**
+     * Waits on a runner thread for a manager of the task's document family to become idle,
+     * or else for any manager once the affinity wait is over, and runs the task with it.
+     */
+    private void awaitAffinity(final OfficeTaskFuture future) {
+        final DocumentFamily documentFamily = future.getOptions().getDocumentFamily();
+        Runnable waiter = new Runnable() {
+            @Override
+            public void run() {
+                PooledOfficeManager avoid = (PooledOfficeManager) future.getFailedManager();
+                PooledOfficeManager manager;
+                try {
+                    manager = pool.poll(documentFamily, avoid, affinityWait, Math.max(affinityWait, IDLE_CHECK_INTERVAL), TimeUnit.MILLISECONDS);
+                    if (manager == null) {
+                        manager = acquireManager(documentFamily, avoid);
+                    }
+                } catch (InterruptedException interruptedException) {
+                    taskQueue.taskFinished(future);
+                    future.fail(new OfficeException("this OfficeManager is currently stopped"));
+                    return;
+                } finally {
+                    endAffinityWait(documentFamily);
+                }
+                Runnable runner = createRunner(future, manager);
+                if (!future.handOver(runner)) {
+                    runner.run();
+                }
+            }
+        };
         try {
-            pool.put(manager);
+            taskRunner.execute(waiter);
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            endAffinityWait(documentFamily);
+            taskQueue.taskFinished(future);
+            future.fail(new OfficeException("this OfficeManager is currently stopped"));
+        }
+    }
+
+    /**
+     * Counts a task that may wait for a busy manager of its document family. At most one
+     * task waits per busy manager of the family; others go to any idle manager.
+     *
+     * @return <code>false</code> if the task is not to wait
+     */
+    private boolean startAffinityWait(final DocumentFamily documentFamily) {
+        if (affinityWait <= 0L) {
+            return false;
+        }
+        int busy = 0;
+        for (PooledOfficeManager manager : busyManagers) {
+            if (manager.getDocumentFamily() == documentFamily) {
+                busy++;
+            }
+        }
+        synchronized (affinityWaits) {
+            Integer waiting = affinityWaits.get(documentFamily);
+            int waits = waiting != null ? waiting.intValue() : 0;
+            if (waits >= busy) {
+                return false;
+            }
+            affinityWaits.put(documentFamily, Integer.valueOf(waits + 1));
+            return true;
+        }
+    }
+
+    private void endAffinityWait(final DocumentFamily documentFamily) {
+        synchronized (affinityWaits) {
+            Integer waiting = affinityWaits.get(documentFamily);
+            if (waiting == null || waiting.intValue() <= 1) {
+                affinityWaits.remove(documentFamily);
+            } else {
+                affinityWaits.put(documentFamily, Integer.valueOf(waiting.intValue() - 1));
+            }
+        }
+    }
+
+    /**
+     * Marks the manager busy with the task and creates the run that executes the task with
+     * it and gives the manager back.
+     */
+    private Runnable createRunner(final OfficeTaskFuture future, final PooledOfficeManager manager) {
+        if (future.getOptions().getDocumentFamily() != null) {
+            manager.setDocumentFamily(future.getOptions().getDocumentFamily());
+        }
+        busyManagers.add(manager);
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (future.getTask() instanceof OfficeLease.Request) {
+                    runLease(future, manager);
+                    return;
+                }
+                long startTime = System.currentTimeMillis();
+                try {
+                    if (!runHedged(future, manager)) {
+                        OfficeException failure = future.attempt(manager);
+                        if (failure == null) {
+                            future.complete();
+                        } else if (!retry(future, manager, failure)) {
+                            future.fail(failure);
+                        }
+                    }
+                } finally {
+                    if (admissionControl != null) {
+                        admissionControl.recordServiceTime(System.currentTimeMillis() - startTime);
+                    }
+                    busyManagers.remove(manager);
+                    taskQueue.taskFinished(future);
+                    returnManager(manager);
+                }
+            }
+        };
+    }
+
+    /**
+     * Queues an idempotent task again, ahead of the others, after its office process was
+     * lost while running it. The retry counts as a quarantine strike, and the last strike
+     * before quarantine is left to fail the task.
+     *
+     * @return <code>false</code> if the failure is to be passed on to the caller
+     */
+    private boolean retry(final OfficeTaskFuture future, final PooledOfficeManager manager, final OfficeException failure) {
+        if (!running || future.getRetries() >= processFailureRetries || !future.getOptions().isIdempotent() || future.isDone()
+                || !(failure instanceof OfficeProcessFailedException) || ((OfficeProcessFailedException) failure).isTaskTimeout()) {
+            return false;
+        }
+        if (quarantine != null && future.getTask() instanceof FingerprintedOfficeTask) {
+            String fingerprint = ((FingerprintedOfficeTask) future.getTask()).getInputFingerprint();
+            if (fingerprint != null) {
+                if (quarantine.getStrikes(fingerprint) + 1 >= quarantine.getMaxStrikes()) {
+                    return false;
+                }
+                quarantine.recordStrike(fingerprint);
+            }
+        }
+        logger.warn(String.format("office process lost while running a task; retrying it (retry %d of %d)", future.getRetries() + 1, processFailureRetries));
+        future.retryAfterFailureOf(manager);
+        // the queue timeout was met by the first attempt; only the caller's deadline still applies
+        future.setQueueDeadline(future.getOptions().getDeadline() > 0L ? future.getOptions().getDeadline() : Long.MAX_VALUE);
+        taskQueue.addFirst(future);
+        return true;
+    }
+
+    /**
+     * Runs a hedgeable task that has a history of durations, starting a hedge on an idle
+     * manager once it runs longer than the hedge percentile of those durations. If both
+     * fail, the task may be retried like one that was not hedged.
+     *
+     * @return <code>false</code> if the task is not to be hedged
+     */
+    private boolean runHedged(final OfficeTaskFuture future, final PooledOfficeManager manager) {
+        if (hedgePercentile <= 0 || !(future.getTask() instanceof HedgeableOfficeTask)) {
+            return false;
+        }
+        long hedgeDelay = durationModel.getPercentile(future.getOptions().getCostKey(), hedgePercentile);
+        if (hedgeDelay <= 0L) {
+            return false;
+        }
+        final HedgedExecution execution = new HedgedExecution(future) {
+            @Override
+            protected void fail(final OfficeException failure, final PooledOfficeManager failedManager) {
+                if (!retry(future, failedManager, failure)) {
+                    future.fail(failure);
+                }
+            }
+        };
+        ScheduledFuture<?> hedgeTimer;
+        try {
+            hedgeTimer = hedgeScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    startHedge(execution);
+                }
+            }, hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            // the pool is stopping; no point in a hedge
+            return false;
+        }
+        try {
+            execution.runPrimary(manager);
+        } finally {
+            hedgeTimer.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * Hands a hedge to an idle manager, unless none is idle or queued tasks are waiting for one.
+     */
+    private void startHedge(final HedgedExecution execution) {
+        if (!running || taskQueue.size() > 0) {
+            return;
+        }
+        final PooledOfficeManager hedgeManager;
+        try {
+            hedgeManager = pool.poll(null, 0L, 0L, TimeUnit.MILLISECONDS);
         } catch (InterruptedException interruptedException) {
-            throw new OfficeException("interrupted", interruptedException);
+            return;
+        }
+        if (hedgeManager == null) {
+            return;
+        }
+        busyManagers.add(hedgeManager);
+        if (!execution.startHedge(hedgeManager)) {
+            busyManagers.remove(hedgeManager);
+            returnManager(hedgeManager);
+            return;
+        }
+        taskRunner.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    execution.runHedge();
+                } finally {
+                    busyManagers.remove(hedgeManager);
+                    returnManager(hedgeManager);
+                }
+            }
+        });
+    }
+
+    /**
+     * Grants the manager to a lease and holds it until the lease is released or expires.
+     */
+    private void runLease(final OfficeTaskFuture future, final PooledOfficeManager manager) {
+        OfficeLease lease = ((OfficeLease.Request) future.getTask()).getLease();
+        try {
+            lease.grant(manager);
+            if (future.complete()) {
+                lease.awaitRelease();
+            }
+        } catch (InterruptedException interruptedException) {
+            // pool is stopping
+        } finally {
+            busyManagers.remove(manager);
+            taskQueue.taskFinished(future);
+            returnManager(manager);
+        }
+    }
+
+    /**
+     * Takes an idle manager for a task, preferring one that last handled the same document
+     * family, and any other than the one whose process failed during the task's last attempt.
+     */
+    private PooledOfficeManager acquireManager(final DocumentFamily documentFamily, final PooledOfficeManager avoid) throws InterruptedException {
+        while (true) {
+            PooledOfficeManager manager = pool.poll(documentFamily, avoid, 0L, IDLE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            if (manager != null) {
+                return manager;
+            }
+            // the idle manager was stopped in the meantime
+            if (canScaleUp() && isEmpty()) {
+                scaleUp("no office process is running");
+            }
+        }
+    }
+
+    /**
+     * Waits until both a task that may run is queued and a manager is free, failing tasks
+     * that have been queued for longer than the task queue timeout in the meantime.
+     */
+    private void awaitManagerForQueuedTask() throws InterruptedException {
+        while (true) {
+            for (OfficeTaskFuture expiredTask : taskQueue.removeExpired(System.currentTimeMillis())) {
+                expiredTask.fail(new OfficeException("no office manager available"));
+            }
+            long queueDeadline = taskQueue.getEarliestQueueDeadline();
+            long queueTimeout = queueDeadline < 0L ? -1L : Math.max(queueDeadline - System.currentTimeMillis(), 0L) + 1L;
+            if (!taskQueue.awaitDispatchable(queueTimeout)) {
+                continue;
+            }
+            queueDeadline = taskQueue.getEarliestQueueDeadline();
+            long oldestSubmitTime = taskQueue.getOldestSubmitTime();
+            if (oldestSubmitTime < 0L) {
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            long wait = Math.max(queueDeadline - now, 0L) + 1L;
+            if (canScaleUp()) {
+                long scaleUpWait = isEmpty() ? 0L : oldestSubmitTime + scaleUpQueueWait - now;
+                if (scaleUpWait <= 0L) {
+                    scaleUp("tasks are queueing up");
+                } else {
+                    wait = Math.min(wait, scaleUpWait);
+                }
+            }
+            if (pool.awaitIdle(wait, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private boolean canScaleUp() {
+        synchronized (stoppedManagers) {
+            return !stoppedManagers.isEmpty() && startingInstances == 0 && getActiveInstances() < maxInstances
+                    && System.currentTimeMillis() >= nextStartAttempt;
+        }
+    }
+
+    private int getActiveInstancesBelowMinimum() {
+        synchronized (stoppedManagers) {
+            return minInstances - getActiveInstances();
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (stoppedManagers) {
+            return getActiveInstances() == 0;
+        }
+    }
+
+    /**
+     * @return the number of started or starting office processes, not counting those being replaced
+     */
+    private int getActiveInstances() {
+        return pooledManagers.length - stoppedManagers.size() - retiringManagers.size();
+    }
+
+    /**
+     * Starts one of the stopped office processes in the background and adds it to the pool once connected.
+     */
+    private void scaleUp(final String reason) {
+        final PooledOfficeManager manager;
+        synchronized (stoppedManagers) {
+            manager = stoppedManagers.remove(0);
+            startingInstances++;
+        }
+        logger.info(reason + "; starting another office process");
+        lifecycleExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                startInstance(manager);
+            }
+        });
+    }
+
+    /**
+     * Starts an office process counted in <code>startingInstances</code> and adds it to the
+     * pool. If it cannot be started it goes back to the stopped processes, and no process
+     * is started for a delay that grows with every consecutive failure.
+     *
+     * @return <code>true</code> if the process was started
+     */
+    private boolean startInstance(final PooledOfficeManager manager) {
+        try {
+            manager.start();
+        } catch (OfficeException officeException) {
+            long retryDelay;
+            synchronized (stoppedManagers) {
+                startingInstances--;
+                stoppedManagers.add(manager);
+                consecutiveStartFailures++;
+                retryDelay = Math.max(restartGovernor.getCrashRestartDelay(consecutiveStartFailures + 1), IDLE_CHECK_INTERVAL);
+                nextStartAttempt = System.currentTimeMillis() + retryDelay;
+            }
+            logger.error(String.format("could not start office process; retrying in %d ms", retryDelay), officeException);
+            return false;
+        }
+        synchronized (stoppedManagers) {
+            startingInstances--;
+            consecutiveStartFailures = 0;
+            nextStartAttempt = 0L;
+        }
+        if (running) {
+            releaseManager(manager);
+        } else {
+            try {
+                manager.stop();
+            } catch (OfficeException officeException) {
+                logger.error("could not stop office process started after the pool was stopped", officeException);
+            }
+        }
+        return true;
+    }
+
+    private void stopIdleInstances() {
+        long now = System.currentTimeMillis();
+        for (PooledOfficeManager manager : pooledManagers) {
+            Long lastReleased = idleSince.get(manager);
+            synchronized (stoppedManagers) {
+                if (getActiveInstances() <= minInstances) {
+                    return;
+                }
+                if (lastReleased == null || now - lastReleased < instanceIdleTimeout || retiringManagers.contains(manager) || !pool.remove(manager)) {
+                    continue;
+                }
+            }
+            idleSince.remove(manager);
+            logger.info(String.format("stopping office process idle for %d ms", now - lastReleased));
+            try {
+                manager.stop();
+            } catch (OfficeException officeException) {
+                logger.error("could not stop idle office process", officeException);
+            }
+            synchronized (stoppedManagers) {
+                stoppedManagers.add(manager);
+            }
+        }
+    }
+
+    /**
+     * Takes back a manager after it has executed a task, and recycles it when it is at or
+     * near its maxTasksPerProcess.
+     */
+    private void returnManager(final PooledOfficeManager manager) {
+        // outside the lock, as the recycling policy may read the process status
+        int tasksUntilRecycle = manager.getTasksUntilRecycle();
+        PooledOfficeManager replacementSlot = null;
+        synchronized (stoppedManagers) {
+            if (replacedManagers.remove(manager)) {
+                retire(manager);
+                return;
+            } else if (retiringManagers.contains(manager)) {
+                if (tasksUntilRecycle <= 0) {
+                    // hold it back until its replacement is ready
+                    exhaustedManagers.add(manager);
+                    return;
+                }
+            } else if (tasksUntilRecycle <= recycleMargin && !stoppedManagers.isEmpty()) {
+                replacementSlot = stoppedManagers.remove(0);
+                retiringManagers.add(manager);
+            } else if (tasksUntilRecycle <= 0) {
+                restartInBackground(manager);
+                return;
+            }
+            releaseManager(manager);
+        }
+        if (replacementSlot != null) {
+            startReplacement(manager, replacementSlot);
+        }
+    }
+
+    private void startReplacement(final PooledOfficeManager manager, final PooledOfficeManager replacement) {
+        logger.info("office process is due for recycling; starting its replacement");
+        lifecycleExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean started = false;
+                try {
+                    replacement.start();
+                    started = true;
+                } catch (OfficeException officeException) {
+                    logger.error("could not start replacement office process", officeException);
+                }
+                synchronized (stoppedManagers) {
+                    if (started) {
+                        releaseManager(replacement);
+                    } else {
+                        stoppedManagers.add(replacement);
+                    }
+                    if (exhaustedManagers.remove(manager)) {
+                        if (started) {
+                            retire(manager);
+                        } else {
+                            retiringManagers.remove(manager);
+                            restartInBackground(manager);
+                        }
+                    } else if (!started) {
+                        retiringManagers.remove(manager);
+                    } else if (pool.remove(manager)) {
+                        retire(manager);
+                    } else {
+                        // busy; retire it once its current task is done
+                        replacedManagers.add(manager);
+                    }
+                }
+            }
+        });
+    }
+
+    private void retire(final PooledOfficeManager manager) {
+        idleSince.remove(manager);
+        lifecycleExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    manager.stop();
+                } catch (OfficeException officeException) {
+                    logger.error("could not stop recycled office process", officeException);
+                }
+                synchronized (stoppedManagers) {
+                    retiringManagers.remove(manager);
+                    stoppedManagers.add(manager);
+                }
+            }
+        });
+    }
+
+    private void restartInBackground(final PooledOfficeManager manager) {
+        lifecycleExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    manager.restart();
+                } catch (OfficeException officeException) {
+                    logger.error("could not restart office process", officeException);
+                }
+                releaseManager(manager);
+            }
+        });
+    }
+
+    /**
+     * Adds a manager to the idle pool if it is ready; one that is restarting joins once it
+     * has reconnected, and one that could not be restarted goes back to the stopped ones.
+     */
+    private void releaseManager(final PooledOfficeManager manager) {
+        synchronized (stoppedManagers) {
+            OfficeInstanceState state = manager.getState();
+            if (state == OfficeInstanceState.RESTARTING || state == OfficeInstanceState.STARTING) {
+                restartingManagers.add(manager);
+                return;
+            } else if (state == OfficeInstanceState.DEAD) {
+                stoppedManagers.add(manager);
+                return;
+            }
+            idleSince.put(manager, System.currentTimeMillis());
+            pool.put(manager);
         }
     }
 
@@ -0,0 +1,250 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of a {@link ProcessPoolOfficeManager} as a whole, as opposed to the
+ * {@link PooledOfficeManagerSettings} of each of its office processes.
+ */
+class ProcessPoolOfficeManagerSettings {
+
+    public static final long DEFAULT_TASK_QUEUE_TIMEOUT = 30000L;
+    public static final int ALL_INSTANCES = Integer.MAX_VALUE;
+    public static final long DEFAULT_SCALE_UP_QUEUE_WAIT = 1000L;
+    public static final int DEFAULT_RECYCLE_MARGIN = 10;
+    public static final long DEFAULT_AFFINITY_WAIT = 0L;
+
+    private long taskQueueTimeout = DEFAULT_TASK_QUEUE_TIMEOUT;
+    private long taskPriorityAgingInterval = DefaultOfficeManagerConfiguration.DEFAULT_TASK_PRIORITY_AGING_INTERVAL;
+    private Map<String, Integer> tenantWeights = new HashMap<String, Integer>();
+    private int maxConcurrentTasksPerTenant = 0;
+    private int minInstances = ALL_INSTANCES;
+    private long instanceIdleTimeout = 0L;
+    private long scaleUpQueueWait = DEFAULT_SCALE_UP_QUEUE_WAIT;
+    private int spareInstances = 0;
+    private int recycleMargin = DEFAULT_RECYCLE_MARGIN;
+    private RestartGovernor restartGovernor = new RestartGovernor();
+    private DispatchPolicy dispatchPolicy = StandardDispatchPolicy.FIFO;
+    private long affinityWait = DEFAULT_AFFINITY_WAIT;
+    private boolean admissionControl = false;
+    private int maxQueueLength = 0;
+    private boolean lazyStart = false;
+    private boolean prewarm = false;
+    private RecyclingPolicy recyclingPolicy;
+    private boolean callerThreadExecution = false;
+    private long shortestJobFirstMaxWait = 0L;
+    private int hedgePercentile = 0;
+    private int quarantineStrikes = 0;
+    private int processFailureRetries = 0;
+
+    public long getTaskQueueTimeout() {
+        return taskQueueTimeout;
+    }
+
+    public void setTaskQueueTimeout(final long taskQueueTimeout) {
+        this.taskQueueTimeout = taskQueueTimeout;
+    }
+
+    public long getTaskPriorityAgingInterval() {
+        return taskPriorityAgingInterval;
+    }
+
+    public void setTaskPriorityAgingInterval(final long taskPriorityAgingInterval) {
+        this.taskPriorityAgingInterval = taskPriorityAgingInterval;
+    }
+
+    public Map<String, Integer> getTenantWeights() {
+        return tenantWeights;
+    }
+
+    public void setTenantWeights(final Map<String, Integer> tenantWeights) {
+        this.tenantWeights = tenantWeights;
+    }
+
+    public int getMaxConcurrentTasksPerTenant() {
+        return maxConcurrentTasksPerTenant;
+    }
+
+    public void setMaxConcurrentTasksPerTenant(final int maxConcurrentTasksPerTenant) {
+        this.maxConcurrentTasksPerTenant = maxConcurrentTasksPerTenant;
+    }
+
+    /**
+     * @return the number of office processes kept running even when idle;
+     *         {@link #ALL_INSTANCES} for a pool of fixed size
+     */
+    public int getMinInstances() {
+        return minInstances;
+    }
+
+    public void setMinInstances(final int minInstances) {
+        this.minInstances = minInstances;
+    }
+
+    /**
+     * @return milliseconds after which an idle office process above {@link #getMinInstances()}
+     *         is stopped; zero or less to keep it running
+     */
+    public long getInstanceIdleTimeout() {
+        return instanceIdleTimeout;
+    }
+
+    public void setInstanceIdleTimeout(final long instanceIdleTimeout) {
+        this.instanceIdleTimeout = instanceIdleTimeout;
+    }
+
+    /**
+     * @return milliseconds a task may wait in the queue before another office process is started
+     */
+    public long getScaleUpQueueWait() {
+        return scaleUpQueueWait;
+    }
+
+    public void setScaleUpQueueWait(final long scaleUpQueueWait) {
+        this.scaleUpQueueWait = scaleUpQueueWait;
+    }
+
+    /**
+     * @return the number of trailing {@link UnoUrl}s reserved for replacement processes
+     *         started while recycling
+     */
+    public int getSpareInstances() {
+        return spareInstances;
+    }
+
+    public void setSpareInstances(final int spareInstances) {
+        this.spareInstances = spareInstances;
+    }
+
+    /**
+     * @return how many tasks before reaching maxTasksPerProcess a replacement process is started
+     */
+    public int getRecycleMargin() {
+        return recycleMargin;
+    }
+
+    public void setRecycleMargin(final int recycleMargin) {
+        this.recycleMargin = recycleMargin;
+    }
+
+    /**
+     * @return the governor shared by all office processes of the pool
+     */
+    public RestartGovernor getRestartGovernor() {
+        return restartGovernor;
+    }
+
+    public void setRestartGovernor(final RestartGovernor restartGovernor) {
+        this.restartGovernor = restartGovernor;
+    }
+
+    public DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
+    public void setDispatchPolicy(final DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy;
+    }
+
+    public long getAffinityWait() {
+        return affinityWait;
+    }
+
+    public void setAffinityWait(final long affinityWait) {
+        this.affinityWait = affinityWait;
+    }
+
+    public boolean isAdmissionControl() {
+        return admissionControl;
+    }
+
+    public void setAdmissionControl(final boolean admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public void setMaxQueueLength(final int maxQueueLength) {
+        this.maxQueueLength = maxQueueLength;
+    }
+
+    public boolean isLazyStart() {
+        return lazyStart;
+    }
+
+    public void setLazyStart(final boolean lazyStart) {
+        this.lazyStart = lazyStart;
+    }
+
+    public boolean isPrewarm() {
+        return prewarm;
+    }
+
+    public void setPrewarm(final boolean prewarm) {
+        this.prewarm = prewarm;
+    }
+
+    public RecyclingPolicy getRecyclingPolicy() {
+        return recyclingPolicy;
+    }
+
+    public void setRecyclingPolicy(final RecyclingPolicy recyclingPolicy) {
+        this.recyclingPolicy = recyclingPolicy;
+    }
+
+    public boolean isCallerThreadExecution() {
+        return callerThreadExecution;
+    }
+
+    public void setCallerThreadExecution(final boolean callerThreadExecution) {
+        this.callerThreadExecution = callerThreadExecution;
+    }
+
+    public long getShortestJobFirstMaxWait() {
+        return shortestJobFirstMaxWait;
+    }
+
+    public void setShortestJobFirstMaxWait(final long shortestJobFirstMaxWait) {
+        this.shortestJobFirstMaxWait = shortestJobFirstMaxWait;
+    }
+
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(final int hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public int getQuarantineStrikes() {
+        return quarantineStrikes;
+    }
+
+    public void setQuarantineStrikes(final int quarantineStrikes) {
+        this.quarantineStrikes = quarantineStrikes;
+    }
+
+    public int getProcessFailureRetries() {
+        return processFailureRetries;
+    }
+
+    public void setProcessFailureRetries(final int processFailureRetries) {
+        this.processFailureRetries = processFailureRetries;
+    }
+
+}
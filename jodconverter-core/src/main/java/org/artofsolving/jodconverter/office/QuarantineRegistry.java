@@ -0,0 +1,78 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the strikes of inputs that made an office process crash or time out, by
+ * fingerprint (see {@link FingerprintedOfficeTask}). An input with <code>maxStrikes</code>
+ * strikes is quarantined; a successful run clears its strikes.
+ * <p>
+ * Only the {@value #MAX_ENTRIES} most recently struck inputs are remembered.
+ */
+class QuarantineRegistry {
+
+    static final int MAX_ENTRIES = 10000;
+
+    private final int maxStrikes;
+    private final Map<String, Integer> strikes = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public QuarantineRegistry(final int maxStrikes) {
+        this.maxStrikes = maxStrikes;
+    }
+
+    /**
+     * @return the number of strikes of the input so far
+     */
+    public synchronized int recordStrike(final String fingerprint) {
+        Integer count = strikes.get(fingerprint);
+        count = count != null ? count + 1 : 1;
+        strikes.put(fingerprint, count);
+        return count;
+    }
+
+    public synchronized void clearStrikes(final String fingerprint) {
+        strikes.remove(fingerprint);
+    }
+
+    public synchronized int getStrikes(final String fingerprint) {
+        Integer count = strikes.get(fingerprint);
+        return count != null ? count : 0;
+    }
+
+    public synchronized boolean isQuarantined(final String fingerprint) {
+        Integer count = strikes.get(fingerprint);
+        return count != null && count >= maxStrikes;
+    }
+
+    /**
+     * @return <code>false</code> if no input has any strikes, so there is no need to fingerprint inputs
+     */
+    public synchronized boolean hasStrikes() {
+        return !strikes.isEmpty();
+    }
+
+    public int getMaxStrikes() {
+        return maxStrikes;
+    }
+
+}
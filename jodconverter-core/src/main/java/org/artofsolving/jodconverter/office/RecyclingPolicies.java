@@ -0,0 +1,92 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Built-in {@link RecyclingPolicy} implementations.
+ *
+ * @since 3.01.2.00
+ */
+public class RecyclingPolicies {
+
+    private RecyclingPolicies() {
+        throw new AssertionError("utility class must not be instantiated");
+    }
+
+    /**
+     * Recycles a process once its resident memory exceeds the given size. Only effective
+     * where the resident memory can be determined, see
+     * {@link OfficeInstanceMetrics#getResidentMemory()}.
+     *
+     * @param maxResidentMemory
+     *            in bytes
+     */
+    public static RecyclingPolicy maxResidentMemory(final long maxResidentMemory) {
+        return new RecyclingPolicy() {
+            @Override
+            public boolean shouldRecycle(final OfficeInstanceMetrics instance) {
+                return instance.getResidentMemory() > maxResidentMemory;
+            }
+        };
+    }
+
+    /**
+     * Recycles a process once its recent tasks take longer than the given factor times its
+     * baseline, see {@link OfficeInstanceMetrics#getBaselineTaskDuration()}.
+     *
+     * @param maxSlowdown
+     *            e.g. 2.0 to recycle when tasks take twice as long as they used to
+     */
+    public static RecyclingPolicy maxLatencyDrift(final double maxSlowdown) {
+        return new RecyclingPolicy() {
+            @Override
+            public boolean shouldRecycle(final OfficeInstanceMetrics instance) {
+                long baseline = instance.getBaselineTaskDuration();
+                return baseline > 0L && instance.getAverageTaskDuration() > maxSlowdown * baseline;
+            }
+        };
+    }
+
+    /**
+     * Recycles a process once it has been running for the given time.
+     *
+     * @param maxAge
+     *            in milliseconds
+     */
+    public static RecyclingPolicy maxAge(final long maxAge) {
+        return new RecyclingPolicy() {
+            @Override
+            public boolean shouldRecycle(final OfficeInstanceMetrics instance) {
+                return instance.getUptime() > maxAge;
+            }
+        };
+    }
+
+    /**
+     * Recycles a process as soon as any of the given policies says so.
+     */
+    public static RecyclingPolicy anyOf(final RecyclingPolicy... policies) {
+        return new RecyclingPolicy() {
+            @Override
+            public boolean shouldRecycle(final OfficeInstanceMetrics instance) {
+                for (RecyclingPolicy policy : policies) {
+                    if (policy.shouldRecycle(instance)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,33 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Decides when an office process of a pool should be replaced by a fresh one, in addition
+ * to the <code>maxTasksPerProcess</code> limit.
+ * <p>
+ * Consulted each time a process has finished a task, so implementations should be quick.
+ *
+ * @see RecyclingPolicies
+ * @since 3.01.2.00
+ */
+public interface RecyclingPolicy {
+
+    /**
+     * @param instance
+     *            statistics of the office process that has just finished a task
+     * @return <code>true</code> to recycle the process
+     */
+    boolean shouldRecycle(OfficeInstanceMetrics instance);
+
+}
@@ -0,0 +1,111 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Coordinates office process (re)starts across a pool.
+ * <ul>
+ * <li>limits how many office processes may be starting at the same time</li>
+ * <li>jitters the point at which each process is recycled, so that processes started
+ * together do not all reach <code>maxTasksPerProcess</code> at the same time</li>
+ * <li>backs off exponentially when a process keeps crashing shortly after being started</li>
+ * </ul>
+ */
+class RestartGovernor {
+
+    public static final long DEFAULT_CRASH_BACKOFF_INITIAL_DELAY = 1000L;
+    public static final long DEFAULT_CRASH_BACKOFF_MAX_DELAY = 60000L;
+    public static final long DEFAULT_STABLE_UPTIME = 60000L;
+
+    private final Semaphore startPermits;
+    private final double recycleJitter;
+    private final long crashBackoffInitialDelay;
+    private final long crashBackoffMaxDelay;
+    private final long stableUptime;
+    private final Random random = new Random();
+
+    /**
+     * A governor that does not limit concurrent starts nor jitter recycling.
+     */
+    public RestartGovernor() {
+        this(0, 0.0, DEFAULT_CRASH_BACKOFF_INITIAL_DELAY, DEFAULT_CRASH_BACKOFF_MAX_DELAY);
+    }
+
+    /**
+     * @param maxConcurrentStarts
+     *            zero or less for no limit
+     * @param recycleJitter
+     *            fraction of <code>maxTasksPerProcess</code> by which a process may be recycled early
+     * @param crashBackoffInitialDelay
+     *            delay before restarting after the second crash in a row, doubled for every further crash
+     * @param crashBackoffMaxDelay
+     */
+    public RestartGovernor(final int maxConcurrentStarts, final double recycleJitter, final long crashBackoffInitialDelay, final long crashBackoffMaxDelay) {
+        startPermits = maxConcurrentStarts > 0 ? new Semaphore(maxConcurrentStarts, true) : null;
+        this.recycleJitter = Math.max(0.0, Math.min(recycleJitter, 1.0));
+        this.crashBackoffInitialDelay = crashBackoffInitialDelay;
+        this.crashBackoffMaxDelay = crashBackoffMaxDelay;
+        stableUptime = DEFAULT_STABLE_UPTIME;
+    }
+
+    public void acquireStartPermit() throws InterruptedException {
+        if (startPermits != null) {
+            startPermits.acquire();
+        }
+    }
+
+    public void releaseStartPermit() {
+        if (startPermits != null) {
+            startPermits.release();
+        }
+    }
+
+    /**
+     * @return the number of tasks the next process lifetime may execute, somewhere between
+     *         <code>maxTasksPerProcess</code> less the jitter and <code>maxTasksPerProcess</code>
+     */
+    public int nextRecycleLimit(final int maxTasksPerProcess) {
+        int jitter = (int) (maxTasksPerProcess * recycleJitter);
+        if (maxTasksPerProcess <= 0 || jitter <= 0) {
+            return maxTasksPerProcess;
+        }
+        synchronized (random) {
+            return maxTasksPerProcess - random.nextInt(jitter + 1);
+        }
+    }
+
+    /**
+     * @return whether a process that crashed after the given uptime counts as crashing repeatedly
+     */
+    public boolean isUnstable(final long uptime) {
+        return uptime < stableUptime;
+    }
+
+    /**
+     * @return the delay before restarting a process that crashed the given number of times in a row
+     */
+    public long getCrashRestartDelay(final int consecutiveCrashes) {
+        if (consecutiveCrashes <= 1 || crashBackoffInitialDelay <= 0L) {
+            return 0L;
+        }
+        long delay = crashBackoffInitialDelay;
+        for (int i = 2; i < consecutiveCrashes && delay < crashBackoffMaxDelay; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, crashBackoffMaxDelay);
+    }
+
+}
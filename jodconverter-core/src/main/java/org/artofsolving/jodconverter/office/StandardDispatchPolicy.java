@@ -0,0 +1,82 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.List;
+
+/**
+ * Built-in {@link DispatchPolicy} implementations.
+ *
+ * @since 3.01.2.00
+ */
+public enum StandardDispatchPolicy implements DispatchPolicy {
+
+    /**
+     * Least recently used process first, spreading work evenly over all processes.
+     */
+    FIFO {
+        @Override
+        public <T extends OfficeInstanceMetrics> T select(final List<T> idleInstances) {
+            return idleInstances.get(0);
+        }
+    },
+
+    /**
+     * Most recently used process first, keeping a hot subset busy and letting the others
+     * idle (and be stopped by an elastic pool).
+     */
+    LIFO {
+        @Override
+        public <T extends OfficeInstanceMetrics> T select(final List<T> idleInstances) {
+            return idleInstances.get(idleInstances.size() - 1);
+        }
+    },
+
+    /**
+     * Process that has executed the fewest tasks since it was (re)started first.
+     */
+    LEAST_TASKS_SERVED {
+        @Override
+        public <T extends OfficeInstanceMetrics> T select(final List<T> idleInstances) {
+            T best = idleInstances.get(0);
+            for (T instance : idleInstances) {
+                if (instance.getTasksServed() < best.getTasksServed()) {
+                    best = instance;
+                }
+            }
+            return best;
+        }
+    },
+
+    /**
+     * Process with the best recent latency and failure rate first, steering work away from
+     * degraded processes. A failure weighs as much as four times the average duration.
+     */
+    HEALTH_SCORED {
+        @Override
+        public <T extends OfficeInstanceMetrics> T select(final List<T> idleInstances) {
+            T best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (int i = idleInstances.size() - 1; i >= 0; i--) {
+                T instance = idleInstances.get(i);
+                double score = (instance.getAverageTaskDuration() + 1.0) * (1.0 + 4.0 * instance.getFailureRate());
+                if (score < bestScore) {
+                    best = instance;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+
+}
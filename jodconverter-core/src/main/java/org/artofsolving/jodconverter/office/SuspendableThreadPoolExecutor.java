@@ -44,6 +44,20 @@ class SuspendableThreadPoolExecutor extends ThreadPoolExecutor {
         }
     }
 
+    /**
+     * Waits until the executor is available, for work that is run outside of it.
+     */
+    public void awaitAvailable() throws InterruptedException {
+        suspendLock.lock();
+        try {
+            while (!available) {
+                availableCondition.await();
+            }
+        } finally {
+            suspendLock.unlock();
+        }
+    }
+
     public void setAvailable(boolean available) {
         suspendLock.lock();
         try {
@@ -0,0 +1,72 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Learns how long tasks take from the durations of recent successful executions, kept
+ * separately for every cost key (see {@link OfficeTaskOptions#setCostKey(String)}).
+ * <p>
+ * Only the last {@value #WINDOW} durations of a key are kept, so the model follows
+ * changes such as a slower office version or a busier machine.
+ */
+class TaskDurationModel {
+
+    static final int WINDOW = 32;
+
+    private static class Durations {
+        private final long[] samples = new long[WINDOW];
+        private int count = 0;
+        private int next = 0;
+    }
+
+    private final Map<String, Durations> durations = new HashMap<String, Durations>();
+
+    public synchronized void record(final String costKey, final long duration) {
+        Durations keyDurations = durations.get(costKey);
+        if (keyDurations == null) {
+            keyDurations = new Durations();
+            durations.put(costKey, keyDurations);
+        }
+        keyDurations.samples[keyDurations.next] = duration;
+        keyDurations.next = (keyDurations.next + 1) % WINDOW;
+        keyDurations.count = Math.min(keyDurations.count + 1, WINDOW);
+    }
+
+    /**
+     * @return the median of the recent durations in milliseconds, or 0 if none was recorded
+     */
+    public long getExpectedDuration(final String costKey) {
+        return getPercentile(costKey, 50);
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return the given percentile of the recent durations in milliseconds, or 0 if none was recorded
+     */
+    public synchronized long getPercentile(final String costKey, final int percentile) {
+        Durations keyDurations = costKey != null ? durations.get(costKey) : null;
+        if (keyDurations == null) {
+            return 0L;
+        }
+        long[] sorted = Arrays.copyOf(keyDurations.samples, keyDurations.count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+}
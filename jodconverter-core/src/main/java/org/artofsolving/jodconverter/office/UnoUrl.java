@@ -37,7 +37,11 @@ class UnoUrl {
     }
 
     public static UnoUrl socket(int port) {
-        String socketString = "socket,host=127.0.0.1,port=" + port;
+        return socket("127.0.0.1", port);
+    }
+
+    public static UnoUrl socket(String host, int port) {
+        String socketString = "socket,host=" + host + ",port=" + port;
         return new UnoUrl(socketString, socketString + ",tcpNoDelay=1");
     }
 
@@ -0,0 +1,62 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.artofsolving.jodconverter.office.DefaultOfficeManagerConfiguration;
+import org.artofsolving.jodconverter.office.OfficeManager;
+import org.testng.annotations.Test;
+
+@Test(groups="functional")
+public class ConversionSpoolFunctionalTest {
+
+    public void convertsInboxToOutbox() throws Exception {
+        File spoolDir = new File(System.getProperty("java.io.tmpdir"), "spool-" + System.currentTimeMillis());
+        File inbox = new File(spoolDir, "inbox");
+        File outbox = new File(spoolDir, "outbox");
+        File failed = new File(spoolDir, "failed");
+        inbox.mkdirs();
+
+        OfficeManager officeManager = new DefaultOfficeManagerConfiguration().buildOfficeManager();
+        OfficeDocumentConverter converter = new OfficeDocumentConverter(officeManager);
+        ConversionSpool spool = new ConversionSpool(converter, converter.getFormatRegistry().getFormatByExtension("pdf"),
+                new File(spoolDir, "processing"), outbox, failed)
+            .addInboxDirectory(inbox)
+            .setPollInterval(200L)
+            .setMinFileAge(0L);
+
+        officeManager.start();
+        spool.start();
+        try {
+            FileUtils.copyFile(new File("src/test/resources/documents/test.odt"), new File(inbox, "test.odt"));
+
+            File output = new File(outbox, "test.pdf");
+            long deadline = System.currentTimeMillis() + 60000L;
+            while (!output.isFile() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(200L);
+            }
+            assertTrue(output.isFile() && output.length() > 0);
+            assertFalse(new File(inbox, "test.odt").exists());
+        } finally {
+            spool.stop();
+            officeManager.stop();
+            FileUtils.deleteDirectory(spoolDir);
+        }
+    }
+
+}
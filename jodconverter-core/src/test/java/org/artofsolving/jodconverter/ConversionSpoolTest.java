@@ -0,0 +1,247 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.artofsolving.jodconverter.office.OfficeException;
+import org.artofsolving.jodconverter.office.OfficeTaskRejectedException;
+import org.artofsolving.jodconverter.office.StubOfficeManager;
+import org.testng.annotations.Test;
+
+@Test
+public class ConversionSpoolTest {
+
+    /**
+     * A spool with two inboxes in a fresh temporary directory, converting with a stub
+     * office manager.
+     */
+    private static class TestSpool {
+        private final File spoolDir;
+        private final File inbox;
+        private final File otherInbox;
+        private final File outbox;
+        private final File failed;
+        private final StubOfficeManager officeManager = new StubOfficeManager();
+        private ConversionSpool spool;
+
+        public TestSpool() throws IOException {
+            spoolDir = File.createTempFile("spool", "");
+            spoolDir.delete();
+            inbox = new File(spoolDir, "inbox");
+            otherInbox = new File(spoolDir, "other-inbox");
+            outbox = new File(spoolDir, "outbox");
+            failed = new File(spoolDir, "failed");
+            inbox.mkdirs();
+            otherInbox.mkdirs();
+        }
+
+        public void start() {
+            OfficeDocumentConverter converter = new OfficeDocumentConverter(officeManager);
+            spool = new ConversionSpool(converter, converter.getFormatRegistry().getFormatByExtension("pdf"),
+                    new File(spoolDir, "processing"), outbox, failed)
+                .addInboxDirectory(inbox)
+                .addInboxDirectory(otherInbox)
+                .setPollInterval(50L)
+                .setMinFileAge(0L)
+                .setMaxConcurrentConversions(1);
+            spool.start();
+        }
+
+        /**
+         * Stops the spool, failing if it does not stop within a few seconds, e.g. because
+         * a conversion slot was never given back.
+         */
+        public void stop() throws Exception {
+            Thread stopper = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        spool.stop();
+                    } catch (InterruptedException interruptedException) {
+                        // given up
+                    }
+                }
+            };
+            stopper.setDaemon(true);
+            stopper.start();
+            stopper.join(2000L);
+            assertFalse(stopper.isAlive(), "spool did not stop");
+        }
+
+        public void delete() throws IOException {
+            FileUtils.deleteDirectory(spoolDir);
+        }
+
+        public void awaitSubmissions(int submissions) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (officeManager.getSubmissions() < submissions && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20L);
+            }
+            assertTrue(officeManager.getSubmissions() >= submissions);
+        }
+    }
+
+    private static void create(File file) throws IOException {
+        new FileOutputStream(file).close();
+    }
+
+    private static String[] list(File directory) {
+        String[] names = directory.list();
+        Arrays.sort(names);
+        return names;
+    }
+
+    public void stoppedOfficeManagerLeavesDocumentInInbox() throws Exception {
+        TestSpool spool = new TestSpool();
+        spool.officeManager.stop();
+        spool.start();
+        try {
+            create(new File(spool.inbox, "a.doc"));
+            Thread.sleep(300L);
+        } finally {
+            spool.stop();
+        }
+        try {
+            assertTrue(new File(spool.inbox, "a.doc").isFile());
+            assertEquals(list(spool.failed).length, 0);
+        } finally {
+            spool.delete();
+        }
+    }
+
+    public void rejectedDocumentGoesBackToInbox() throws Exception {
+        TestSpool spool = new TestSpool();
+        spool.officeManager.setFailure(new OfficeTaskRejectedException("task queue is full"));
+        spool.start();
+        try {
+            create(new File(spool.inbox, "a.doc"));
+            // picked up again on later polls
+            spool.awaitSubmissions(3);
+        } finally {
+            spool.stop();
+        }
+        try {
+            assertTrue(new File(spool.inbox, "a.doc").isFile());
+            assertEquals(list(spool.failed).length, 0);
+        } finally {
+            spool.delete();
+        }
+    }
+
+    public void quarantinedDocumentFails() throws Exception {
+        TestSpool spool = new TestSpool();
+        spool.officeManager.setFailure(new OfficeTaskRejectedException("input is quarantined", false));
+        spool.start();
+        try {
+            create(new File(spool.inbox, "a.doc"));
+            spool.awaitSubmissions(1);
+        } finally {
+            spool.stop();
+        }
+        try {
+            assertFalse(new File(spool.inbox, "a.doc").exists());
+            assertEquals(list(spool.failed), new String[] { "a.doc", "a.doc.error.txt" });
+        } finally {
+            spool.delete();
+        }
+    }
+
+    public void failedDocumentsWithSameNameAreAllKept() throws Exception {
+        TestSpool spool = new TestSpool();
+        spool.officeManager.setFailure(new OfficeException("conversion failed"));
+        spool.start();
+        try {
+            create(new File(spool.inbox, "a.doc"));
+            create(new File(spool.otherInbox, "a.doc"));
+            spool.awaitSubmissions(2);
+        } finally {
+            spool.stop();
+        }
+        try {
+            // a-<claim id>.doc sorts first
+            String[] names = list(spool.failed);
+            assertEquals(names.length, 4);
+            assertTrue(names[0].startsWith("a-") && names[0].endsWith(".doc"));
+            assertEquals(names[1], names[0] + ".error.txt");
+            assertEquals(names[2], "a.doc");
+            assertEquals(names[3], "a.doc.error.txt");
+        } finally {
+            spool.delete();
+        }
+    }
+
+    public void movesToFreeNameAndSuffixesTakenOne() throws IOException {
+        TestSpool spool = new TestSpool();
+        try {
+            File directory = spool.outbox;
+            directory.mkdirs();
+            File source = new File(spool.spoolDir, "source");
+            create(source);
+            assertEquals(ConversionSpool.moveToUniqueFile(source, directory, "a.pdf", "x-1"), new File(directory, "a.pdf"));
+            create(source);
+            assertEquals(ConversionSpool.moveToUniqueFile(source, directory, "a.pdf", "x-2"), new File(directory, "a-x-2.pdf"));
+            create(source);
+            assertEquals(ConversionSpool.moveToUniqueFile(source, directory, "README", "x-3"), new File(directory, "README"));
+
+            // being taken by another spool right now
+            create(new File(directory, ".b.pdf.lock"));
+            create(source);
+            assertEquals(ConversionSpool.moveToUniqueFile(source, directory, "b.pdf", "x-4"), new File(directory, "b-x-4.pdf"));
+
+            assertEquals(list(directory), new String[] { ".b.pdf.lock", "README", "a-x-2.pdf", "a.pdf", "b-x-4.pdf" });
+        } finally {
+            spool.delete();
+        }
+    }
+
+    public void recoversDocumentsClaimedBeforeClaimTimeout() throws Exception {
+        TestSpool spool = new TestSpool();
+        File processing = new File(spool.spoolDir, "processing");
+        processing.mkdirs();
+        long longAgo = System.currentTimeMillis() - 2 * 3600000L;
+        File abandoned = new File(processing, "abc-1-a.doc");
+        create(abandoned);
+        abandoned.setLastModified(longAgo);
+        File abandonedOutput = new File(processing, "abc-1-a.pdf.part");
+        create(abandonedOutput);
+        abandonedOutput.setLastModified(longAgo);
+        File staleLock = new File(spool.failed, ".c.doc.lock");
+        spool.failed.mkdirs();
+        create(staleLock);
+        staleLock.setLastModified(longAgo);
+        // still being converted by another spool
+        create(new File(processing, "def-1-b.doc"));
+
+        // leaves recovered documents in the inbox
+        spool.officeManager.stop();
+        spool.start();
+        spool.stop();
+        try {
+            assertEquals(list(spool.inbox), new String[] { "a.doc" });
+            assertEquals(list(processing), new String[] { "def-1-b.doc" });
+            assertEquals(list(spool.failed).length, 0);
+        } finally {
+            spool.delete();
+        }
+    }
+
+}
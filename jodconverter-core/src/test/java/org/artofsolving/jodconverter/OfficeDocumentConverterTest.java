@@ -0,0 +1,209 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.artofsolving.jodconverter.document.DocumentFamily;
+import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.office.OfficeException;
+import org.artofsolving.jodconverter.office.OfficeLease;
+import org.artofsolving.jodconverter.office.OfficeManager;
+import org.artofsolving.jodconverter.office.OfficeTask;
+import org.artofsolving.jodconverter.office.OfficeTaskEstimate;
+import org.artofsolving.jodconverter.office.OfficeTaskFuture;
+import org.artofsolving.jodconverter.office.OfficeTaskOptions;
+import org.artofsolving.jodconverter.office.OfficeVersion;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class OfficeDocumentConverterTest {
+
+    /**
+     * Records the options of submitted tasks without executing them.
+     */
+    private static class RecordingOfficeManager implements OfficeManager {
+        private final List<OfficeTaskOptions> submittedOptions = new ArrayList<OfficeTaskOptions>();
+
+        public OfficeTaskFuture submit(OfficeTask task, OfficeTaskOptions options) {
+            submittedOptions.add(options);
+            return null;
+        }
+
+        public int getOptionsCount() {
+            return submittedOptions.size();
+        }
+
+        public OfficeTaskOptions getOptions(int index) {
+            return submittedOptions.get(index);
+        }
+
+        public OfficeTaskOptions getLastOptions() {
+            return submittedOptions.get(submittedOptions.size() - 1);
+        }
+
+        public void execute(OfficeTask task) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeTaskFuture submit(OfficeTask task) {
+            return submit(task, new OfficeTaskOptions());
+        }
+
+        public OfficeLease lease(long leaseTime) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeLease lease(long leaseTime, OfficeTaskOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeTaskEstimate estimate(OfficeTaskOptions options) {
+            return new OfficeTaskEstimate(0L, 0L);
+        }
+
+        public void start() {
+            // nothing to start
+        }
+
+        public void stop() {
+            // nothing to stop
+        }
+
+        public boolean isRunning() {
+            return true;
+        }
+
+        public OfficeVersion getVersion() {
+            return null;
+        }
+    }
+
+    private RecordingOfficeManager officeManager;
+    private OfficeDocumentConverter converter;
+
+    @BeforeMethod
+    public void createConverter() {
+        // a fresh converter per test, TestNG shares the test instance
+        officeManager = new RecordingOfficeManager();
+        converter = new OfficeDocumentConverter(officeManager);
+    }
+
+    private DocumentFormat format(String extension) {
+        return converter.getFormatRegistry().getFormatByExtension(extension);
+    }
+
+    private OfficeTaskOptions convert(String inputName, String outputExtension, OfficeTaskOptions options) throws OfficeException {
+        converter.convertAsync(new File(inputName), new File("output." + outputExtension), format(outputExtension), options);
+        return officeManager.getLastOptions();
+    }
+
+    private static File createInputFile(String extension, int size) throws IOException {
+        File file = File.createTempFile("input", "." + extension);
+        file.deleteOnExit();
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(new byte[size]);
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+
+    public void optionsCanBeReusedForSeveralConversions() throws IOException {
+        converter.setTimeouts(format("doc"), null, 1000L, 2000L);
+        OfficeTaskOptions options = new OfficeTaskOptions().setTenant("tenant");
+        int submitted = officeManager.getOptionsCount();
+        converter.convertAsync(createInputFile("doc", 1000), new File("output.pdf"), format("pdf"), options);
+        converter.convertAsync(createInputFile("xls", 3000), new File("output.pdf"), format("pdf"), options);
+
+        // filled in on copies only
+        assertNull(options.getDocumentFamily());
+        assertNull(options.getCostKey());
+        assertEquals(options.getEstimatedCost(), 0L);
+        assertEquals(options.getQueueTimeout(), 0L);
+        assertFalse(options.isIdempotentSet());
+
+        OfficeTaskOptions first = officeManager.getOptions(submitted);
+        OfficeTaskOptions second = officeManager.getOptions(submitted + 1);
+        assertEquals(first.getTenant(), "tenant");
+        assertEquals(second.getTenant(), "tenant");
+        assertEquals(first.getDocumentFamily(), DocumentFamily.TEXT);
+        assertEquals(second.getDocumentFamily(), DocumentFamily.SPREADSHEET);
+        assertFalse(first.getEstimatedCost() == second.getEstimatedCost());
+        assertFalse(first.getCostKey().equals(second.getCostKey()));
+        assertEquals(first.getQueueTimeout(), 1000L);
+        assertEquals(second.getQueueTimeout(), 0L);
+    }
+
+    public void estimatedCostIsInputSizeWeightedByFamily() throws IOException {
+        File input = createInputFile("xls", 3000);
+        converter.convertAsync(createInputFile("doc", 1000), new File("output.pdf"), format("pdf"), new OfficeTaskOptions());
+        assertEquals(officeManager.getLastOptions().getEstimatedCost(), 1000L);
+        converter.convertAsync(input, new File("output.pdf"), format("pdf"), new OfficeTaskOptions());
+        assertEquals(officeManager.getLastOptions().getEstimatedCost(), 6000L);
+
+        converter.setCostWeight(DocumentFamily.SPREADSHEET, 0.5);
+        converter.convertAsync(input, new File("output.pdf"), format("pdf"), new OfficeTaskOptions());
+        assertEquals(officeManager.getLastOptions().getEstimatedCost(), 1500L);
+
+        // the task's own estimate wins
+        converter.convertAsync(input, new File("output.pdf"), format("pdf"), new OfficeTaskOptions().setEstimatedCost(42L));
+        assertEquals(officeManager.getLastOptions().getEstimatedCost(), 42L);
+    }
+
+    public void conversionsAreIdempotentUnlessSetOtherwise() {
+        assertTrue(convert("input.doc", "pdf", new OfficeTaskOptions()).isIdempotent());
+        assertFalse(convert("input.doc", "pdf", new OfficeTaskOptions().setIdempotent(false)).isIdempotent());
+    }
+
+    public void timeoutsTakePrecedenceFromTaskToFormatsToDefault() {
+        converter.setTimeouts(format("doc"), format("pdf"), 1000L, 2000L);
+        converter.setTimeouts(format("doc"), null, 3000L, 4000L);
+        converter.setTimeouts(null, format("pdf"), 5000L, 6000L);
+
+        OfficeTaskOptions options = convert("input.doc", "pdf", new OfficeTaskOptions());
+        assertEquals(options.getQueueTimeout(), 1000L);
+        assertEquals(options.getExecutionTimeout(), 2000L);
+
+        options = convert("input.doc", "odt", new OfficeTaskOptions());
+        assertEquals(options.getQueueTimeout(), 3000L);
+        assertEquals(options.getExecutionTimeout(), 4000L);
+
+        options = convert("input.odt", "pdf", new OfficeTaskOptions());
+        assertEquals(options.getQueueTimeout(), 5000L);
+        assertEquals(options.getExecutionTimeout(), 6000L);
+
+        // the office manager's defaults
+        options = convert("input.odt", "txt", new OfficeTaskOptions());
+        assertEquals(options.getQueueTimeout(), 0L);
+        assertEquals(options.getExecutionTimeout(), 0L);
+
+        // the task's own timeouts win over the formats'
+        options = convert("input.doc", "pdf", new OfficeTaskOptions().setQueueTimeout(7000L));
+        assertEquals(options.getQueueTimeout(), 7000L);
+        assertEquals(options.getExecutionTimeout(), 2000L);
+    }
+
+}
@@ -0,0 +1,101 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.artofsolving.jodconverter.document.DefaultDocumentFormatRegistry;
+import org.testng.annotations.Test;
+
+@Test
+public class StandardConversionTaskTest {
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("hedge", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] content = new byte[(int) file.length()];
+            int length = input.read(content);
+            return new String(content, 0, Math.max(length, 0), "UTF-8");
+        } finally {
+            input.close();
+        }
+    }
+
+    private static StandardConversionTask createTask(File outputFile) {
+        return new StandardConversionTask(new File("input.odt"), outputFile, new DefaultDocumentFormatRegistry().getFormatByExtension("pdf"));
+    }
+
+    public void hedgeWritesToTemporaryFileNextToOutput() throws IOException {
+        File outputFile = new File(createTempDir(), "output.pdf");
+        StandardConversionTask task = createTask(outputFile);
+        StandardConversionTask hedge = (StandardConversionTask) task.createHedge();
+        File hedgeOutputFile = hedge.getOutputFile();
+        hedgeOutputFile.deleteOnExit();
+
+        assertEquals(hedgeOutputFile.getParentFile(), outputFile.getParentFile());
+        assertFalse(hedgeOutputFile.getName().equals(outputFile.getName()));
+        assertTrue(hedgeOutputFile.getName().endsWith(".pdf"));
+        assertEquals(hedge.getInputFile(), task.getInputFile());
+    }
+
+    public void acceptedHedgeReplacesOutput() throws IOException {
+        File outputFile = new File(createTempDir(), "output.pdf");
+        outputFile.deleteOnExit();
+        StandardConversionTask task = createTask(outputFile);
+        StandardConversionTask hedge = (StandardConversionTask) task.createHedge();
+        write(outputFile, "partial output of the original");
+        write(hedge.getOutputFile(), "output of the hedge");
+
+        task.acceptHedge(hedge);
+        assertEquals(read(outputFile), "output of the hedge");
+        assertFalse(hedge.getOutputFile().exists());
+    }
+
+    public void discardedHedgeLeavesNothingBehind() throws IOException {
+        File outputFile = new File(createTempDir(), "output.pdf");
+        StandardConversionTask task = createTask(outputFile);
+        StandardConversionTask hedge = (StandardConversionTask) task.createHedge();
+        write(hedge.getOutputFile(), "output of the hedge");
+
+        task.discardHedge(hedge);
+        assertFalse(hedge.getOutputFile().exists());
+        assertFalse(outputFile.exists());
+    }
+
+}
@@ -0,0 +1,44 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+@Test
+public class AdmissionControlTest {
+
+    public void noEstimateWithoutSamples() {
+        AdmissionControl admissionControl = new AdmissionControl();
+        assertEquals(admissionControl.estimateQueueWait(100, 4, 4), 0L);
+    }
+
+    public void estimatesWavesOfTasksAhead() {
+        AdmissionControl admissionControl = new AdmissionControl();
+        admissionControl.recordServiceTime(1000L);
+        assertEquals(admissionControl.getAverageServiceTime(), 1000L);
+
+        assertEquals(admissionControl.estimateQueueWait(0, 3, 4), 0L);
+        assertEquals(admissionControl.estimateQueueWait(0, 4, 4), 500L);
+        assertEquals(admissionControl.estimateQueueWait(8, 4, 4), 2500L);
+    }
+
+    public void smoothsServiceTime() {
+        AdmissionControl admissionControl = new AdmissionControl();
+        admissionControl.recordServiceTime(1000L);
+        admissionControl.recordServiceTime(2000L);
+        assertEquals(admissionControl.getAverageServiceTime(), 1200L);
+    }
+
+}
@@ -0,0 +1,156 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+
+import org.artofsolving.jodconverter.ReflectionUtils;
+import org.artofsolving.jodconverter.process.PureJavaProcessManager;
+import org.testng.annotations.Test;
+
+@Test(groups="integration")
+public class ExternalOfficePoolManagerTest {
+
+    private static OfficeProcess startOfficeProcess(UnoUrl unoUrl) throws Exception {
+        OfficeProcess officeProcess = new OfficeProcess(OfficeUtils.getDefaultOfficeHome(), unoUrl,
+            null, null, new File(System.getProperty("java.io.tmpdir")), new PureJavaProcessManager(), false);
+        officeProcess.start();
+        Thread.sleep(2000);
+        Integer exitCode = officeProcess.getExitCode();
+        if (exitCode != null && exitCode.equals(Integer.valueOf(81))) {
+            officeProcess.doStart(true);
+            Thread.sleep(2000);
+        }
+        return officeProcess;
+    }
+
+    private static void destroy(OfficeProcess officeProcess) throws Exception {
+        Process process = (Process) ReflectionUtils.getPrivateField(officeProcess, "process");
+        process.destroy();
+    }
+
+    public void balancesTasksAcrossEndpoints() throws Exception {
+        UnoUrl first = UnoUrl.socket(2002);
+        UnoUrl second = UnoUrl.socket(2003);
+        OfficeProcess firstProcess = startOfficeProcess(first);
+        OfficeProcess secondProcess = startOfficeProcess(second);
+
+        ExternalOfficePoolManager manager = new ExternalOfficePoolManager(new UnoUrl[] { first, second }, 1, true, 30000L, 1000L);
+        manager.start();
+        try {
+            MockOfficeTask firstTask = new MockOfficeTask(2000L);
+            MockOfficeTask secondTask = new MockOfficeTask(2000L);
+            long start = System.currentTimeMillis();
+            OfficeTaskFuture firstFuture = manager.submit(firstTask);
+            OfficeTaskFuture secondFuture = manager.submit(secondTask);
+            firstFuture.join();
+            secondFuture.join();
+
+            assertTrue(firstTask.isCompleted());
+            assertTrue(secondTask.isCompleted());
+            // executed side by side rather than one after the other
+            assertTrue(System.currentTimeMillis() - start < 4000L);
+        } finally {
+            manager.stop();
+            destroy(firstProcess);
+            destroy(secondProcess);
+        }
+    }
+
+    public void queueTimeoutCountsFromSubmission() throws Exception {
+        UnoUrl unoUrl = UnoUrl.socket(2002);
+        OfficeProcess officeProcess = startOfficeProcess(unoUrl);
+
+        ExternalOfficePoolManager manager = new ExternalOfficePoolManager(new UnoUrl[] { unoUrl }, 1, true, 1000L, 1000L);
+        manager.start();
+        try {
+            OfficeTaskFuture runningFuture = manager.submit(new MockOfficeTask(2000L));
+            OfficeTaskFuture queuedFuture = manager.submit(new MockOfficeTask());
+            try {
+                queuedFuture.join();
+                fail("task should have timed out in the queue");
+            } catch (OfficeException officeException) {
+                // expected
+            }
+            runningFuture.join();
+        } finally {
+            manager.stop();
+            destroy(officeProcess);
+        }
+    }
+
+    public void skipsUnreachableEndpoint() throws Exception {
+        UnoUrl reachable = UnoUrl.socket(2002);
+        OfficeProcess officeProcess = startOfficeProcess(reachable);
+
+        ExternalOfficePoolManager manager = new ExternalOfficePoolManager(new UnoUrl[] { UnoUrl.socket(2009), reachable }, 1, true, 30000L, 1000L);
+        manager.start();
+        try {
+            MockOfficeTask task = new MockOfficeTask();
+            manager.execute(task);
+            assertTrue(task.isCompleted());
+        } finally {
+            manager.stop();
+            destroy(officeProcess);
+        }
+    }
+
+    public void executesConcurrentlyOnOneEndpoint() throws Exception {
+        UnoUrl unoUrl = UnoUrl.socket(2002);
+        OfficeProcess officeProcess = startOfficeProcess(unoUrl);
+
+        ExternalOfficePoolManager manager = new ExternalOfficePoolManager(new UnoUrl[] { unoUrl }, 2, false, 30000L, 1000L);
+        manager.start();
+        try {
+            MockOfficeTask firstTask = new MockOfficeTask(2000L);
+            MockOfficeTask secondTask = new MockOfficeTask(2000L);
+            long start = System.currentTimeMillis();
+            OfficeTaskFuture firstFuture = manager.submit(firstTask);
+            OfficeTaskFuture secondFuture = manager.submit(secondTask);
+            firstFuture.join();
+            secondFuture.join();
+
+            assertTrue(firstTask.isCompleted());
+            assertTrue(secondTask.isCompleted());
+            assertTrue(System.currentTimeMillis() - start < 4000L);
+        } finally {
+            manager.stop();
+            destroy(officeProcess);
+        }
+    }
+
+    public void reconnectsAfterRestart() throws Exception {
+        UnoUrl unoUrl = UnoUrl.socket(2002);
+        OfficeProcess officeProcess = startOfficeProcess(unoUrl);
+
+        ExternalOfficePoolManager manager = new ExternalOfficePoolManager(new UnoUrl[] { unoUrl }, 1, true, 30000L, 1000L);
+        manager.start();
+        try {
+            manager.execute(new MockOfficeTask());
+            destroy(officeProcess);
+            officeProcess = startOfficeProcess(unoUrl);
+
+            // the broken connection fails validation and is opened again before the task runs
+            MockOfficeTask task = new MockOfficeTask();
+            manager.execute(task);
+            assertTrue(task.isCompleted());
+        } finally {
+            manager.stop();
+            destroy(officeProcess);
+        }
+    }
+
+}
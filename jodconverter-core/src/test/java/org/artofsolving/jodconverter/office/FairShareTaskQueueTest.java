@@ -0,0 +1,123 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+@Test
+public class FairShareTaskQueueTest {
+
+    private static OfficeTaskFuture newTask(String tenant) {
+        return new OfficeTaskFuture(new MockOfficeTask(), new OfficeTaskOptions().setTenant(tenant));
+    }
+
+    public void tenantsShareByWeight() {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+        weights.put("a", 2);
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, weights, 0);
+        for (int i = 0; i < 30; i++) {
+            queue.add(newTask("a"));
+            queue.add(newTask("b"));
+        }
+
+        int dispatchedForA = 0;
+        for (int i = 0; i < 30; i++) {
+            OfficeTaskFuture future = queue.poll();
+            if ("a".equals(future.getOptions().getTenant())) {
+                dispatchedForA++;
+            }
+            queue.taskFinished(future);
+        }
+        assertEquals(dispatchedForA, 20);
+    }
+
+    public void heavyTenantDoesNotDelayNewcomer() {
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, Collections.<String, Integer>emptyMap(), 0);
+        for (int i = 0; i < 100; i++) {
+            queue.add(newTask("bulk"));
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.taskFinished(queue.poll());
+        }
+        OfficeTaskFuture interactive = newTask("interactive");
+        queue.add(interactive);
+
+        OfficeTaskFuture first = queue.poll();
+        OfficeTaskFuture second = queue.poll();
+        assertTrue(first == interactive || second == interactive);
+    }
+
+    public void concurrencyCapPerTenant() throws Exception {
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, Collections.<String, Integer>emptyMap(), 1);
+        queue.add(newTask("a"));
+        queue.add(newTask("a"));
+
+        OfficeTaskFuture running = queue.poll();
+        assertNull(queue.poll());
+        assertFalse(queue.awaitDispatchable(10L));
+        assertEquals(queue.size(), 1);
+
+        OfficeTaskFuture other = newTask("b");
+        queue.add(other);
+        assertSame(queue.poll(), other);
+
+        queue.taskFinished(running);
+        assertTrue(queue.awaitDispatchable(10L));
+        assertEquals(queue.poll().getOptions().getTenant(), "a");
+    }
+
+    public void refusesTasksWhenFull() {
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, Collections.<String, Integer>emptyMap(), 0, 2, 0L);
+        assertTrue(queue.add(newTask("a")));
+        assertTrue(queue.add(newTask("b")));
+        assertFalse(queue.add(newTask("a")));
+        queue.poll();
+        assertTrue(queue.add(newTask("a")));
+    }
+
+    public void removeCancelledTask() {
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, Collections.<String, Integer>emptyMap(), 0);
+        OfficeTaskFuture cancelled = newTask("a");
+        OfficeTaskFuture other = newTask("a");
+        queue.add(cancelled);
+        queue.add(other);
+
+        assertTrue(queue.remove(cancelled));
+        assertFalse(queue.remove(cancelled));
+        assertEquals(queue.size(), 1);
+        assertSame(queue.poll(), other);
+    }
+
+    public void retriedTaskGoesFirst() {
+        FairShareTaskQueue queue = new FairShareTaskQueue(0L, Collections.<String, Integer>emptyMap(), 0, 1, 0L);
+        OfficeTaskFuture queued = newTask("a");
+        OfficeTaskFuture retried = newTask("a");
+        queue.add(queued);
+        queue.addFirst(retried);
+
+        assertEquals(queue.size(), 2);
+        assertSame(queue.poll(), retried);
+        assertSame(queue.poll(), queued);
+    }
+
+}
@@ -0,0 +1,199 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link PooledOfficeManager} that runs tasks without an office process, with a null
+ * {@link OfficeContext}, on the thread that executes them.
+ */
+public class FakePooledOfficeManager extends PooledOfficeManager {
+
+    private static final AtomicInteger PORTS = new AtomicInteger(3000);
+
+    private final PooledOfficeManagerSettings settings;
+
+    private final AtomicInteger starts = new AtomicInteger();
+    private final AtomicInteger stops = new AtomicInteger();
+    private final AtomicInteger tasks = new AtomicInteger();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private volatile int tasksUntilRecycle = Integer.MAX_VALUE;
+    private volatile long restartTime = 0L;
+    private volatile long recycleCheckTime = 0L;
+    private volatile boolean startFailing = false;
+    private volatile long startTime = 0L;
+    private volatile Thread lastTaskThread;
+    private volatile AtomicInteger concurrentStarts = new AtomicInteger();
+    private volatile AtomicInteger maxConcurrentStarts = new AtomicInteger();
+
+    public FakePooledOfficeManager() {
+        this(new PooledOfficeManagerSettings(UnoUrl.socket(PORTS.incrementAndGet())));
+    }
+
+    public FakePooledOfficeManager(PooledOfficeManagerSettings settings) {
+        super(settings);
+        this.settings = settings;
+    }
+
+    @Override
+    public void start() throws OfficeException {
+        starts.incrementAndGet();
+        setState(OfficeInstanceState.STARTING);
+        // like a real start, subject to the restart governor's limit
+        try {
+            settings.getRestartGovernor().acquireStartPermit();
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted", interruptedException);
+        }
+        try {
+            int starting = concurrentStarts.incrementAndGet();
+            while (true) {
+                int max = maxConcurrentStarts.get();
+                if (starting <= max || maxConcurrentStarts.compareAndSet(max, starting)) {
+                    break;
+                }
+            }
+            sleep(startTime);
+        } finally {
+            concurrentStarts.decrementAndGet();
+            settings.getRestartGovernor().releaseStartPermit();
+        }
+        if (startFailing) {
+            setState(OfficeInstanceState.DEAD);
+            throw new OfficeException("could not start");
+        }
+        setState(OfficeInstanceState.READY);
+    }
+
+    @Override
+    void restart() throws OfficeException {
+        setState(OfficeInstanceState.RESTARTING);
+        sleep(restartTime);
+        restarts.incrementAndGet();
+        tasksUntilRecycle = Integer.MAX_VALUE;
+        setState(OfficeInstanceState.READY);
+    }
+
+    @Override
+    int getTasksUntilRecycle() {
+        if (recycleCheckTime > 0L) {
+            try {
+                Thread.sleep(recycleCheckTime);
+            } catch (InterruptedException interruptedException) {
+                // the pool is stopping
+                Thread.currentThread().interrupt();
+            }
+        }
+        return tasksUntilRecycle;
+    }
+
+    @Override
+    public void stop() throws OfficeException {
+        stops.incrementAndGet();
+        setState(OfficeInstanceState.STOPPED);
+    }
+
+    @Override
+    void execute(OfficeTask task, long executionTimeout, String costKey) throws OfficeException {
+        changeState(OfficeInstanceState.READY, OfficeInstanceState.BUSY);
+        try {
+            lastTaskThread = Thread.currentThread();
+            tasks.incrementAndGet();
+            long startTime = System.currentTimeMillis();
+            task.execute(null);
+            if (costKey != null && settings.getDurationModel() != null) {
+                settings.getDurationModel().record(costKey, System.currentTimeMillis() - startTime);
+            }
+        } finally {
+            changeState(OfficeInstanceState.BUSY, OfficeInstanceState.READY);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return getState() == OfficeInstanceState.READY || getState() == OfficeInstanceState.BUSY;
+    }
+
+    private static void sleep(long time) throws OfficeException {
+        if (time > 0L) {
+            try {
+                Thread.sleep(time);
+            } catch (InterruptedException interruptedException) {
+                throw new OfficeException("interrupted", interruptedException);
+            }
+        }
+    }
+
+    /**
+     * Counts the starts in progress, and the most at any one time, in counters shared with other managers.
+     */
+    public void setStartCounters(AtomicInteger concurrentStarts, AtomicInteger maxConcurrentStarts) {
+        this.concurrentStarts = concurrentStarts;
+        this.maxConcurrentStarts = maxConcurrentStarts;
+    }
+
+    public void setStartFailing(boolean startFailing) {
+        this.startFailing = startFailing;
+    }
+
+    /**
+     * @param startTime how long {@link #start()} takes, in milliseconds
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @param restartTime how long a restart takes, in milliseconds
+     */
+    public void setRestartTime(long restartTime) {
+        this.restartTime = restartTime;
+    }
+
+    /**
+     * @param recycleCheckTime how long asking for the tasks left until recycling takes, like a
+     *            recycling policy that reads the process status, in milliseconds
+     */
+    public void setRecycleCheckTime(long recycleCheckTime) {
+        this.recycleCheckTime = recycleCheckTime;
+    }
+
+    /**
+     * Overrides the count of tasks left until recycling, until the next restart.
+     */
+    public void setTasksUntilRecycle(int tasksUntilRecycle) {
+        this.tasksUntilRecycle = tasksUntilRecycle;
+    }
+
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    public int getStarts() {
+        return starts.get();
+    }
+
+    public int getStops() {
+        return stops.get();
+    }
+
+    public int getTasks() {
+        return tasks.get();
+    }
+
+    public Thread getLastTaskThread() {
+        return lastTaskThread;
+    }
+
+}
@@ -0,0 +1,203 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+@Test
+public class HedgedExecutionTest {
+
+    /**
+     * Runs until it is told to finish or is cancelled.
+     */
+    private static class ControlledTask implements CancellableOfficeTask {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finish = new CountDownLatch(1);
+        private volatile boolean failing = false;
+        private volatile boolean cancelled = false;
+        private volatile boolean stopped = false;
+
+        public void execute(OfficeContext context) {
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException interruptedException) {
+                // stop
+            }
+            stopped = true;
+            if (cancelled) {
+                throw new OfficeException("task cancelled");
+            }
+            if (failing) {
+                throw new OfficeException("task failed");
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            finish.countDown();
+        }
+
+        public void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+
+        public void succeed() {
+            finish.countDown();
+        }
+
+        public void fail() {
+            failing = true;
+            finish.countDown();
+        }
+    }
+
+    private static class ControlledHedgeableTask extends ControlledTask implements HedgeableOfficeTask {
+        private final ControlledTask hedge = new ControlledTask();
+        private volatile OfficeTask accepted;
+        private volatile boolean stoppedWhenAccepted = false;
+        private volatile OfficeTask discarded;
+
+        public OfficeTask createHedge() {
+            return hedge;
+        }
+
+        public void acceptHedge(OfficeTask hedge) {
+            accepted = hedge;
+            stoppedWhenAccepted = ((ControlledTask) this).stopped;
+        }
+
+        public void discardHedge(OfficeTask hedge) {
+            discarded = hedge;
+        }
+    }
+
+    private static FakePooledOfficeManager startManager() {
+        FakePooledOfficeManager manager = new FakePooledOfficeManager();
+        manager.start();
+        return manager;
+    }
+
+    private static Thread runInBackground(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static Thread runPrimaryInBackground(final HedgedExecution execution, final PooledOfficeManager manager) {
+        return runInBackground(new Runnable() {
+            public void run() {
+                execution.runPrimary(manager);
+            }
+        });
+    }
+
+    public void primaryWinsAndHedgeIsCancelled() throws Exception {
+        ControlledHedgeableTask task = new ControlledHedgeableTask();
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        final HedgedExecution execution = new HedgedExecution(future);
+        Thread primary = runPrimaryInBackground(execution, startManager());
+        task.awaitStarted();
+
+        assertTrue(execution.startHedge(startManager()));
+        Thread hedge = runInBackground(new Runnable() {
+            public void run() {
+                execution.runHedge();
+            }
+        });
+        task.hedge.awaitStarted();
+
+        task.succeed();
+        primary.join(5000L);
+        hedge.join(5000L);
+        future.join();
+        assertTrue(task.hedge.cancelled);
+        assertNull(task.accepted);
+        assertSame(task.discarded, task.hedge);
+    }
+
+    public void hedgeWinsOnceOriginalHasStopped() throws Exception {
+        ControlledHedgeableTask task = new ControlledHedgeableTask();
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        HedgedExecution execution = new HedgedExecution(future);
+        Thread primary = runPrimaryInBackground(execution, startManager());
+        task.awaitStarted();
+
+        assertTrue(execution.startHedge(startManager()));
+        task.hedge.succeed();
+        execution.runHedge();
+        primary.join(5000L);
+
+        future.join();
+        assertTrue(((ControlledTask) task).cancelled);
+        assertSame(task.accepted, task.hedge);
+        assertTrue(task.stoppedWhenAccepted);
+        assertNull(task.discarded);
+    }
+
+    public void failsWhenBothRunsFail() throws Exception {
+        ControlledHedgeableTask task = new ControlledHedgeableTask();
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        final PooledOfficeManager[] failedManager = new PooledOfficeManager[1];
+        HedgedExecution execution = new HedgedExecution(future) {
+            @Override
+            protected void fail(OfficeException failure, PooledOfficeManager manager) {
+                failedManager[0] = manager;
+                super.fail(failure, manager);
+            }
+        };
+        FakePooledOfficeManager primaryManager = startManager();
+        Thread primary = runPrimaryInBackground(execution, primaryManager);
+        task.awaitStarted();
+
+        assertTrue(execution.startHedge(startManager()));
+        task.hedge.fail();
+        execution.runHedge();
+        // the original may still succeed
+        assertFalse(future.isDone());
+
+        task.fail();
+        primary.join(5000L);
+        try {
+            future.join();
+            fail("both runs failed");
+        } catch (OfficeException officeException) {
+            assertEquals(officeException.getMessage(), "task failed");
+        }
+        assertSame(failedManager[0], primaryManager);
+        assertNull(task.accepted);
+        assertSame(task.discarded, task.hedge);
+    }
+
+    public void noHedgeOnceOriginalHasFinished() {
+        ControlledHedgeableTask task = new ControlledHedgeableTask();
+        task.succeed();
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        HedgedExecution execution = new HedgedExecution(future);
+        execution.runPrimary(startManager());
+
+        future.join();
+        assertFalse(execution.startHedge(startManager()));
+    }
+
+}
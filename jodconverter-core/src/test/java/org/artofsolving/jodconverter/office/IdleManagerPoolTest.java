@@ -0,0 +1,85 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.artofsolving.jodconverter.document.DocumentFamily;
+import org.testng.annotations.Test;
+
+@Test
+public class IdleManagerPoolTest {
+
+    private static PooledOfficeManager newManager(int port, DocumentFamily documentFamily) {
+        PooledOfficeManager manager = new PooledOfficeManager(UnoUrl.socket(port));
+        manager.setDocumentFamily(documentFamily);
+        return manager;
+    }
+
+    public void prefersManagerOfSameFamily() throws Exception {
+        IdleManagerPool pool = new IdleManagerPool(StandardDispatchPolicy.FIFO);
+        PooledOfficeManager text = newManager(2002, DocumentFamily.TEXT);
+        PooledOfficeManager spreadsheet = newManager(2003, DocumentFamily.SPREADSHEET);
+        pool.put(text);
+        pool.put(spreadsheet);
+
+        assertSame(pool.poll(DocumentFamily.SPREADSHEET, 0L, 0L, TimeUnit.MILLISECONDS), spreadsheet);
+        assertSame(pool.poll(DocumentFamily.SPREADSHEET, 0L, 0L, TimeUnit.MILLISECONDS), text);
+        assertNull(pool.poll(null, 0L, 0L, TimeUnit.MILLISECONDS));
+    }
+
+    public void fallsBackAfterAffinityWait() throws Exception {
+        IdleManagerPool pool = new IdleManagerPool(StandardDispatchPolicy.FIFO);
+        final PooledOfficeManager presentation = newManager(2002, DocumentFamily.PRESENTATION);
+        PooledOfficeManager text = newManager(2003, DocumentFamily.TEXT);
+        pool.put(text);
+
+        long start = System.currentTimeMillis();
+        assertSame(pool.poll(DocumentFamily.PRESENTATION, 50L, 1000L, TimeUnit.MILLISECONDS), text);
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+
+        pool.put(text);
+        final IdleManagerPool sharedPool = pool;
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interruptedException) {
+                    // ignore
+                }
+                sharedPool.put(presentation);
+            }
+        }.start();
+        assertSame(pool.poll(DocumentFamily.PRESENTATION, 1000L, 1000L, TimeUnit.MILLISECONDS), presentation);
+        assertTrue(pool.remove(text));
+        assertFalse(pool.awaitIdle(0L, TimeUnit.MILLISECONDS));
+    }
+
+    public void avoidsManagerUnlessItIsTheOnlyOne() throws Exception {
+        IdleManagerPool pool = new IdleManagerPool(StandardDispatchPolicy.FIFO);
+        PooledOfficeManager failed = newManager(2002, DocumentFamily.TEXT);
+        PooledOfficeManager other = newManager(2003, DocumentFamily.SPREADSHEET);
+        pool.put(failed);
+        pool.put(other);
+
+        assertSame(pool.poll(DocumentFamily.TEXT, failed, 0L, 0L, TimeUnit.MILLISECONDS), other);
+        assertSame(pool.poll(DocumentFamily.TEXT, failed, 0L, 0L, TimeUnit.MILLISECONDS), failed);
+    }
+
+}
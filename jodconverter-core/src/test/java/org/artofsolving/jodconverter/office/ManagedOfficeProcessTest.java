@@ -0,0 +1,37 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+@Test
+public class ManagedOfficeProcessTest {
+
+    public void onlyUnexpectedLossesBackOff() {
+        ManagedOfficeProcessSettings settings = new ManagedOfficeProcessSettings(UnoUrl.socket(2002));
+        settings.setRestartGovernor(new RestartGovernor(0, 0.0, 1000L, 60000L));
+        ManagedOfficeProcess process = new ManagedOfficeProcess(settings);
+
+        assertEquals(process.nextRestartDelay(100L), 0L);
+        assertEquals(process.nextRestartDelay(100L), 1000L);
+        // terminated after a task timeout: restarted straight away, and not counted
+        process.expectTermination();
+        assertEquals(process.nextRestartDelay(100L), 0L);
+        assertEquals(process.nextRestartDelay(100L), 2000L);
+        // lost after running stably for long enough
+        assertEquals(process.nextRestartDelay(RestartGovernor.DEFAULT_STABLE_UPTIME), 0L);
+    }
+
+}
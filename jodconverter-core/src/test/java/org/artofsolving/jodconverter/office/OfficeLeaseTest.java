@@ -0,0 +1,188 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+@Test
+public class OfficeLeaseTest {
+
+    private static final OfficeTask NOOP_TASK = new OfficeTask() {
+        public void execute(OfficeContext context) {
+            // returns straight away
+        }
+    };
+
+    /**
+     * Stands in for an external office manager, which takes no execution timeout.
+     */
+    private static class ThreadedOfficeManager implements OfficeManager {
+        public void execute(OfficeTask task) {
+            task.execute(null);
+        }
+
+        public OfficeTaskFuture submit(OfficeTask task) {
+            final OfficeTaskFuture future = new OfficeTaskFuture(task);
+            new Thread() {
+                @Override
+                public void run() {
+                    future.run(ThreadedOfficeManager.this);
+                }
+            }.start();
+            return future;
+        }
+
+        public OfficeTaskFuture submit(OfficeTask task, OfficeTaskOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeLease lease(long leaseTime) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeLease lease(long leaseTime, OfficeTaskOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OfficeTaskEstimate estimate(OfficeTaskOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void start() {
+            // nothing to start
+        }
+
+        public void stop() {
+            // nothing to stop
+        }
+
+        public boolean isRunning() {
+            return true;
+        }
+
+        public OfficeVersion getVersion() {
+            return null;
+        }
+    }
+
+    private static FakePooledOfficeManager startManager() {
+        FakePooledOfficeManager manager = new FakePooledOfficeManager();
+        manager.start();
+        return manager;
+    }
+
+    private static void assertInvalid(OfficeLease lease) {
+        try {
+            lease.execute(NOOP_TASK);
+            fail("lease should no longer be valid");
+        } catch (OfficeException officeException) {
+            // expected
+        }
+    }
+
+    public void grantedLeaseExecutesTasksOnItsManager() {
+        FakePooledOfficeManager manager = startManager();
+        OfficeLease lease = new OfficeLease(5000L);
+        // not granted yet
+        assertInvalid(lease);
+
+        lease.grant(manager);
+        lease.execute(NOOP_TASK);
+        lease.execute(NOOP_TASK);
+        assertEquals(manager.getTasks(), 2);
+        assertTrue(lease.getRemainingTime() > 0L && lease.getRemainingTime() <= 5000L);
+    }
+
+    public void releaseEndsLease() throws Exception {
+        OfficeLease lease = new OfficeLease(5000L);
+        lease.grant(startManager());
+        lease.release();
+        long start = System.currentTimeMillis();
+        lease.awaitRelease();
+        assertTrue(System.currentTimeMillis() - start < 1000L);
+        assertInvalid(lease);
+        // releasing again does nothing
+        lease.release();
+    }
+
+    public void leaseExpires() throws Exception {
+        OfficeLease lease = new OfficeLease(200L);
+        lease.grant(startManager());
+        long start = System.currentTimeMillis();
+        lease.awaitRelease();
+        assertTrue(System.currentTimeMillis() - start >= 150L);
+        assertInvalid(lease);
+    }
+
+    public void leaseOfExternalManagerExpires() throws Exception {
+        OfficeLease lease = new OfficeLease(200L);
+        lease.grant(new ThreadedOfficeManager());
+        lease.execute(NOOP_TASK);
+        Thread.sleep(250L);
+        assertInvalid(lease);
+    }
+
+    public void leaseOfExternalManagerCancelsTaskRunningPastExpiry() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        OfficeLease lease = new OfficeLease(200L);
+        lease.grant(new ThreadedOfficeManager());
+        long start = System.currentTimeMillis();
+        try {
+            lease.execute(new OfficeTask() {
+                public void execute(OfficeContext context) {
+                    try {
+                        released.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException interruptedException) {
+                        // done
+                    }
+                }
+            });
+            fail("task should have been cancelled");
+        } catch (OfficeException officeException) {
+            assertTrue(System.currentTimeMillis() - start < 1000L);
+        } finally {
+            released.countDown();
+        }
+    }
+
+    public void pooledManagerGrantsLeaseOnItself() {
+        FakePooledOfficeManager manager = startManager();
+        OfficeLease lease = manager.lease(5000L);
+        lease.execute(NOOP_TASK);
+        assertEquals(manager.getTasks(), 1);
+        lease.release();
+    }
+
+    public void pooledManagerRunsSubmittedTaskBeforeReturning() throws Exception {
+        FakePooledOfficeManager manager = startManager();
+        OfficeTaskFuture future = manager.submit(NOOP_TASK);
+        assertTrue(future.isDone());
+        future.get();
+        assertEquals(manager.getTasks(), 1);
+        assertEquals(manager.getLastTaskThread(), Thread.currentThread());
+        assertEquals(manager.estimate(new OfficeTaskOptions()).getQueueWait(), 0L);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void requestIsNotExecutable() {
+        new OfficeLease(1000L).newRequest().execute(null);
+    }
+
+}
@@ -0,0 +1,155 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.Test;
+
+@Test
+public class OfficeTaskFutureTest {
+
+    private static class RecordingListener implements OfficeTaskListener {
+        private int completed = 0;
+        private OfficeException failure;
+
+        public void taskCompleted(OfficeTask task) {
+            completed++;
+        }
+
+        public void taskFailed(OfficeTask task, OfficeException exception) {
+            failure = exception;
+        }
+    }
+
+    public void completeNotifiesListeners() throws Exception {
+        OfficeTaskFuture future = new OfficeTaskFuture(new MockOfficeTask());
+        RecordingListener listener = new RecordingListener();
+        future.addListener(listener);
+        assertFalse(future.isDone());
+
+        assertTrue(future.complete());
+        assertFalse(future.fail(new OfficeException("too late")));
+        assertTrue(future.isDone());
+        assertNull(future.get());
+        assertEquals(listener.completed, 1);
+        assertNull(listener.failure);
+    }
+
+    public void listenerAddedAfterCompletionIsNotifiedImmediately() {
+        OfficeTaskFuture future = new OfficeTaskFuture(new MockOfficeTask());
+        future.complete();
+        RecordingListener listener = new RecordingListener();
+        future.addListener(listener);
+        assertEquals(listener.completed, 1);
+    }
+
+    public void failurePropagates() throws Exception {
+        OfficeTaskFuture future = new OfficeTaskFuture(new MockOfficeTask());
+        RecordingListener listener = new RecordingListener();
+        future.addListener(listener);
+        OfficeException exception = new OfficeException("conversion failed");
+        future.fail(exception);
+
+        assertSame(listener.failure, exception);
+        try {
+            future.get();
+            fail("get should fail");
+        } catch (ExecutionException executionException) {
+            assertSame(executionException.getCause(), exception);
+        }
+        try {
+            future.join();
+            fail("join should fail");
+        } catch (OfficeException officeException) {
+            assertSame(officeException, exception);
+        }
+    }
+
+    public void cancel() throws Exception {
+        OfficeTaskFuture future = new OfficeTaskFuture(new MockOfficeTask());
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertFalse(future.complete());
+        try {
+            future.get();
+            fail("get should fail");
+        } catch (CancellationException cancellationException) {
+            // expected
+        }
+    }
+
+    public void cancelStopsRunningTask() throws Exception {
+        final BlockingTask task = new BlockingTask();
+        final OfficeTaskFuture future = new OfficeTaskFuture(task);
+        Thread runner = new Thread() {
+            public void run() {
+                future.run(new FakePooledOfficeManager());
+            }
+        };
+        runner.start();
+        assertTrue(task.started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        runner.join(5000);
+        assertFalse(runner.isAlive());
+        assertTrue(future.isCancelled());
+    }
+
+    public void cancelledTaskIsNotStarted() throws Exception {
+        BlockingTask task = new BlockingTask();
+        OfficeTaskFuture future = new OfficeTaskFuture(task);
+        assertTrue(future.cancel(true));
+
+        assertTrue(future.attempt(new FakePooledOfficeManager()) != null);
+        assertEquals(task.started.getCount(), 1L);
+    }
+
+    @Test(expectedExceptions = TimeoutException.class)
+    public void getTimesOut() throws Exception {
+        new OfficeTaskFuture(new MockOfficeTask()).get(10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs until cancelled.
+     */
+    private static class BlockingTask implements CancellableOfficeTask {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+
+        public void execute(OfficeContext context) throws OfficeException {
+            started.countDown();
+            try {
+                cancelled.await();
+            } catch (InterruptedException interruptedException) {
+                throw new OfficeException("interrupted", interruptedException);
+            }
+        }
+
+        public void cancel() {
+            cancelled.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+@Test
+public class PriorityTaskQueueTest {
+
+    private static OfficeTaskFuture newTask(OfficeTaskPriority priority) {
+        return new OfficeTaskFuture(new MockOfficeTask(), new OfficeTaskOptions().setPriority(priority));
+    }
+
+    public void pollsByPriorityThenSubmissionOrder() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L);
+        OfficeTaskFuture batch = newTask(OfficeTaskPriority.BATCH);
+        OfficeTaskFuture normal1 = newTask(OfficeTaskPriority.NORMAL);
+        OfficeTaskFuture normal2 = newTask(OfficeTaskPriority.NORMAL);
+        OfficeTaskFuture interactive = newTask(OfficeTaskPriority.INTERACTIVE);
+        queue.add(batch);
+        queue.add(normal1);
+        queue.add(normal2);
+        queue.add(interactive);
+
+        assertEquals(queue.size(), 4);
+        assertSame(queue.poll(), interactive);
+        assertSame(queue.poll(), normal1);
+        assertSame(queue.poll(), normal2);
+        assertSame(queue.poll(), batch);
+        assertNull(queue.poll());
+    }
+
+    public void agingPromotesWaitingTasks() throws Exception {
+        PriorityTaskQueue queue = new PriorityTaskQueue(1L);
+        OfficeTaskFuture batch = newTask(OfficeTaskPriority.BATCH);
+        queue.add(batch);
+        Thread.sleep(20);
+        OfficeTaskFuture interactive = newTask(OfficeTaskPriority.INTERACTIVE);
+        queue.add(interactive);
+
+        assertSame(queue.poll(), batch);
+        assertSame(queue.poll(), interactive);
+    }
+
+    private static OfficeTaskFuture newTask(long estimatedCost) {
+        return new OfficeTaskFuture(new MockOfficeTask(), new OfficeTaskOptions().setEstimatedCost(estimatedCost));
+    }
+
+    public void shortestJobFirst() throws Exception {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L, 60000L);
+        OfficeTaskFuture large = newTask(1000L);
+        OfficeTaskFuture small = newTask(10L);
+        OfficeTaskFuture medium = newTask(100L);
+        queue.add(large);
+        queue.add(small);
+        queue.add(medium);
+
+        assertSame(queue.poll(), small);
+        assertSame(queue.poll(), medium);
+        assertSame(queue.poll(), large);
+    }
+
+    public void shortestJobFirstDoesNotStarveLargeTasks() throws Exception {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L, 10L);
+        OfficeTaskFuture large = newTask(1000L);
+        queue.add(large);
+        Thread.sleep(20);
+        OfficeTaskFuture small = newTask(10L);
+        queue.add(small);
+
+        assertSame(queue.poll(), large);
+        assertSame(queue.poll(), small);
+    }
+
+    public void shortestJobFirstKeepsSubmissionOrderForEqualCosts() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L, 60000L);
+        OfficeTaskFuture large = newTask(1000L);
+        OfficeTaskFuture first = newTask(100L);
+        OfficeTaskFuture removed = newTask(10L);
+        OfficeTaskFuture second = newTask(100L);
+        queue.add(large);
+        queue.add(first);
+        queue.add(removed);
+        queue.add(second);
+        assertTrue(queue.remove(removed));
+
+        assertSame(queue.poll(), first);
+        assertSame(queue.poll(), second);
+        assertSame(queue.poll(), large);
+        assertNull(queue.poll());
+    }
+
+    public void skipsCancelledTasks() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L);
+        OfficeTaskFuture cancelled = newTask(OfficeTaskPriority.INTERACTIVE);
+        OfficeTaskFuture normal = newTask(OfficeTaskPriority.NORMAL);
+        queue.add(cancelled);
+        queue.add(normal);
+        cancelled.cancel(false);
+
+        assertSame(queue.poll(), normal);
+        assertEquals(queue.size(), 0);
+    }
+
+    public void removeExpired() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L);
+        OfficeTaskFuture early = newTask(OfficeTaskPriority.INTERACTIVE);
+        early.setQueueDeadline(1000L);
+        OfficeTaskFuture late = newTask(OfficeTaskPriority.BATCH);
+        late.setQueueDeadline(2000L);
+        OfficeTaskFuture unbounded = newTask(OfficeTaskPriority.NORMAL);
+        queue.add(late);
+        queue.add(unbounded);
+        queue.add(early);
+
+        assertEquals(queue.getEarliestQueueDeadline(), 1000L);
+        assertEquals(queue.removeExpired(1000L).size(), 1);
+        assertEquals(queue.getEarliestQueueDeadline(), 2000L);
+        assertEquals(queue.removeExpired(5000L).size(), 1);
+        assertSame(queue.poll(), unbounded);
+    }
+
+    public void removedAndPolledTasksLeaveQueueDeadlines() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(0L);
+        OfficeTaskFuture first = newTask(OfficeTaskPriority.NORMAL);
+        first.setQueueDeadline(1000L);
+        OfficeTaskFuture second = newTask(OfficeTaskPriority.NORMAL);
+        second.setQueueDeadline(2000L);
+        OfficeTaskFuture retried = newTask(OfficeTaskPriority.NORMAL);
+        retried.setQueueDeadline(3000L);
+        queue.add(first);
+        queue.add(second);
+        queue.addFirst(retried);
+
+        assertSame(queue.poll(), retried);
+        assertEquals(queue.getEarliestQueueDeadline(), 1000L);
+        assertTrue(queue.remove(first));
+        assertFalse(queue.remove(first));
+        assertEquals(queue.getEarliestQueueDeadline(), 2000L);
+        assertSame(queue.poll(), second);
+        assertEquals(queue.getEarliestQueueDeadline(), -1L);
+        assertEquals(queue.removeExpired(5000L).size(), 0);
+    }
+
+}
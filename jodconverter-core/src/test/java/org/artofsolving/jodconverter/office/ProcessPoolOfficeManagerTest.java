@@ -0,0 +1,638 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.artofsolving.jodconverter.document.DocumentFamily;
+import org.testng.annotations.Test;
+
+@Test
+public class ProcessPoolOfficeManagerTest {
+
+    private static final OfficeTask NOOP_TASK = new OfficeTask() {
+        public void execute(OfficeContext context) {
+            // returns straight away
+        }
+    };
+
+    /**
+     * Runs until released.
+     */
+    private static class LatchTask implements OfficeTask {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        public void execute(OfficeContext context) throws OfficeException {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException interruptedException) {
+                throw new OfficeException("interrupted", interruptedException);
+            }
+        }
+
+        public boolean awaitStarted() throws InterruptedException {
+            return started.await(5, TimeUnit.SECONDS);
+        }
+
+        public void release() {
+            released.countDown();
+        }
+    }
+
+    private static FakePooledOfficeManager[] createManagers(int count) {
+        FakePooledOfficeManager[] managers = new FakePooledOfficeManager[count];
+        for (int i = 0; i < count; i++) {
+            managers[i] = new FakePooledOfficeManager();
+        }
+        return managers;
+    }
+
+    private static int countStarts(FakePooledOfficeManager[] managers) {
+        int starts = 0;
+        for (FakePooledOfficeManager manager : managers) {
+            starts += manager.getStarts();
+        }
+        return starts;
+    }
+
+    private static int countRunning(FakePooledOfficeManager[] managers) {
+        int running = 0;
+        for (FakePooledOfficeManager manager : managers) {
+            if (manager.isRunning()) {
+                running++;
+            }
+        }
+        return running;
+    }
+
+    private static void awaitRunning(FakePooledOfficeManager[] managers, int running) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (countRunning(managers) != running && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+    }
+
+    public void scalesUpWhenTasksQueueAndStopsIdleInstances() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(3);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setMinInstances(1);
+        settings.setScaleUpQueueWait(100L);
+        settings.setInstanceIdleTimeout(500L);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            assertEquals(countStarts(managers), 1);
+
+            LatchTask first = new LatchTask();
+            LatchTask second = new LatchTask();
+            OfficeTaskFuture firstFuture = pool.submit(first);
+            assertTrue(first.awaitStarted());
+            OfficeTaskFuture secondFuture = pool.submit(second);
+            // only runs once another process has been started for it
+            assertTrue(second.awaitStarted());
+            assertEquals(countStarts(managers), 2);
+
+            first.release();
+            second.release();
+            firstFuture.join();
+            secondFuture.join();
+            awaitRunning(managers, 1);
+            assertEquals(countRunning(managers), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void doesNotScaleBeyondMaximum() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setMinInstances(1);
+        settings.setScaleUpQueueWait(50L);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            LatchTask[] tasks = { new LatchTask(), new LatchTask(), new LatchTask() };
+            OfficeTaskFuture[] futures = new OfficeTaskFuture[tasks.length];
+            for (int i = 0; i < tasks.length; i++) {
+                futures[i] = pool.submit(tasks[i]);
+            }
+            assertTrue(tasks[0].awaitStarted());
+            assertTrue(tasks[1].awaitStarted());
+            Thread.sleep(300L);
+            assertEquals(countStarts(managers), 2);
+            assertEquals(tasks[2].started.getCount(), 1L);
+
+            for (LatchTask task : tasks) {
+                task.release();
+            }
+            for (OfficeTaskFuture future : futures) {
+                future.join();
+            }
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void restartsProcessAtRecycleLimit() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        try {
+            managers[0].setTasksUntilRecycle(0);
+            pool.execute(NOOP_TASK);
+            // the next task waits for the restart
+            pool.submit(NOOP_TASK).join();
+            assertEquals(managers[0].getRestarts(), 1);
+            assertEquals(managers[0].getTasks(), 2);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void replacesProcessNearRecycleLimitWithSpare() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setSpareInstances(1);
+        settings.setRecycleMargin(5);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            assertEquals(managers[1].getStarts(), 0);
+            managers[0].setTasksUntilRecycle(3);
+            pool.execute(NOOP_TASK);
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (managers[0].getStops() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            // the spare took over without a restart, and the old process was stopped once idle
+            assertEquals(managers[1].getStarts(), 1);
+            assertEquals(managers[0].getStops(), 1);
+            assertEquals(managers[0].getRestarts(), 0);
+            assertEquals(countRunning(managers), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void recyclingDoesNotHoldUpIdleStops() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setMinInstances(1);
+        settings.setScaleUpQueueWait(50L);
+        settings.setInstanceIdleTimeout(200L);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            LatchTask first = new LatchTask();
+            LatchTask second = new LatchTask();
+            OfficeTaskFuture firstFuture = pool.submit(first);
+            assertTrue(first.awaitStarted());
+            OfficeTaskFuture secondFuture = pool.submit(second);
+            assertTrue(second.awaitStarted());
+
+            // the first process restarts slowly at its recycle limit, the second becomes idle
+            managers[0].setRestartTime(4000L);
+            managers[0].setTasksUntilRecycle(0);
+            first.release();
+            firstFuture.join();
+            second.release();
+            secondFuture.join();
+
+            long deadline = System.currentTimeMillis() + 3000L;
+            while (managers[1].getStops() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertEquals(managers[1].getStops(), 1);
+            assertEquals(managers[0].getRestarts(), 0);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void slowRecyclingCheckDoesNotHoldUpOtherInstances() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setMinInstances(2);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            LatchTask first = new LatchTask();
+            OfficeTaskFuture firstFuture = pool.submit(first);
+            assertTrue(first.awaitStarted());
+            FakePooledOfficeManager firstManager = managers[0].getTasks() == 1 ? managers[0] : managers[1];
+            firstManager.setRecycleCheckTime(3000L);
+            first.release();
+            firstFuture.join();
+
+            // runs on the other process while the first one is still being checked
+            long start = System.currentTimeMillis();
+            pool.submit(NOOP_TASK).get(2000L, TimeUnit.MILLISECONDS);
+            assertTrue(System.currentTimeMillis() - start < 1000L);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void taskQueueTimeoutOverridesPoolDefault() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        try {
+            LatchTask busy = new LatchTask();
+            OfficeTaskFuture busyFuture = pool.submit(busy);
+            assertTrue(busy.awaitStarted());
+
+            long start = System.currentTimeMillis();
+            OfficeTaskFuture future = pool.submit(NOOP_TASK, new OfficeTaskOptions().setQueueTimeout(200L));
+            try {
+                future.join();
+                fail("task should have timed out in the queue");
+            } catch (OfficeException officeException) {
+                // expected
+            }
+            // well before the pool's default of 30 seconds
+            assertTrue(System.currentTimeMillis() - start < 5000L);
+
+            busy.release();
+            busyFuture.join();
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void affinityWaitDoesNotHoldUpOtherTasks() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setAffinityWait(2000L);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        LatchTask busy = new LatchTask();
+        try {
+            pool.submit(busy, new OfficeTaskOptions().setDocumentFamily(DocumentFamily.TEXT));
+            assertTrue(busy.awaitStarted());
+
+            // waits for the busy text process
+            OfficeTaskFuture text = pool.submit(NOOP_TASK, new OfficeTaskOptions().setDocumentFamily(DocumentFamily.TEXT));
+            // well within the affinity wait
+            pool.submit(NOOP_TASK, new OfficeTaskOptions().setDocumentFamily(DocumentFamily.SPREADSHEET)).get(1000L, TimeUnit.MILLISECONDS);
+            assertFalse(text.isDone());
+
+            busy.release();
+            text.join();
+            // the text task went to the process that ran the busy one
+            assertEquals(Math.max(managers[0].getTasks(), managers[1].getTasks()), 2);
+            assertEquals(Math.min(managers[0].getTasks(), managers[1].getTasks()), 1);
+        } finally {
+            busy.release();
+            pool.stop();
+        }
+    }
+
+    public void startsInstancesInParallelUpToTheLimit() throws Exception {
+        RestartGovernor governor = new RestartGovernor(2, 0.0, 1000L, 60000L);
+        AtomicInteger concurrentStarts = new AtomicInteger();
+        AtomicInteger maxConcurrentStarts = new AtomicInteger();
+        FakePooledOfficeManager[] managers = new FakePooledOfficeManager[4];
+        for (int i = 0; i < managers.length; i++) {
+            PooledOfficeManagerSettings settings = new PooledOfficeManagerSettings(UnoUrl.socket(2100 + i));
+            settings.setRestartGovernor(governor);
+            managers[i] = new FakePooledOfficeManager(settings);
+            managers[i].setStartTime(300L);
+            managers[i].setStartCounters(concurrentStarts, maxConcurrentStarts);
+        }
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setRestartGovernor(governor);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        long start = System.currentTimeMillis();
+        pool.start();
+        try {
+            // returns once the first process is up, not all of them
+            assertTrue(System.currentTimeMillis() - start < 550L);
+            awaitRunning(managers, 4);
+            assertEquals(countRunning(managers), 4);
+            assertEquals(maxConcurrentStarts.get(), 2);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void toleratesFailedStarts() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        managers[0].setStartFailing(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        try {
+            pool.execute(NOOP_TASK);
+            assertEquals(managers[1].getTasks(), 1);
+
+            // started again later
+            managers[0].setStartFailing(false);
+            awaitRunning(managers, 2);
+            assertEquals(countRunning(managers), 2);
+            assertTrue(managers[0].getStarts() >= 2);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test(expectedExceptions = OfficeException.class)
+    public void failsToStartWithoutAnyInstance() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        for (FakePooledOfficeManager manager : managers) {
+            manager.setStartFailing(true);
+        }
+        new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings()).start();
+    }
+
+    public void lazyStartStartsProcessForFirstTask() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setLazyStart(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            Thread.sleep(200L);
+            assertEquals(countStarts(managers), 0);
+
+            pool.execute(NOOP_TASK);
+            assertEquals(countStarts(managers), 1);
+            assertEquals(managers[0].getTasks() + managers[1].getTasks(), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void prewarmStartsProcessInBackground() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        for (FakePooledOfficeManager manager : managers) {
+            manager.setStartTime(300L);
+        }
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setLazyStart(true);
+        settings.setPrewarm(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        long start = System.currentTimeMillis();
+        pool.start();
+        try {
+            // does not wait for the prewarmed process
+            assertTrue(System.currentTimeMillis() - start < 250L);
+            awaitRunning(managers, 1);
+            assertEquals(countRunning(managers), 1);
+
+            // the first task uses the prewarmed process
+            pool.execute(NOOP_TASK);
+            assertEquals(countStarts(managers), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void callerThreadExecutionRunsTaskOnCallingThread() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setCallerThreadExecution(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            final AtomicReference<Thread> taskThread = new AtomicReference<Thread>();
+            OfficeTask task = new OfficeTask() {
+                public void execute(OfficeContext context) {
+                    taskThread.set(Thread.currentThread());
+                }
+            };
+            pool.execute(task);
+            assertSame(taskThread.get(), Thread.currentThread());
+
+            // nor does a submitted task that nobody joins
+            pool.submit(task).get();
+            assertNotSame(taskThread.get(), Thread.currentThread());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void callerThreadExecutionRunsJoinedTaskOnJoiningThread() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setCallerThreadExecution(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        final LatchTask running = new LatchTask();
+        try {
+            final AtomicReference<Thread> taskThread = new AtomicReference<Thread>();
+            pool.submit(running);
+            running.awaitStarted();
+            // like a synchronous conversion, which joins its submitted task
+            OfficeTaskFuture future = pool.submit(new OfficeTask() {
+                public void execute(OfficeContext context) {
+                    taskThread.set(Thread.currentThread());
+                }
+            }, new OfficeTaskOptions().setTenant("tenant"));
+            new Thread() {
+                @Override
+                public void run() {
+                    ProcessPoolOfficeManagerTest.sleep(200L);
+                    running.release();
+                }
+            }.start();
+            future.join();
+            assertSame(taskThread.get(), Thread.currentThread());
+        } finally {
+            running.release();
+            pool.stop();
+        }
+    }
+
+    public void callerThreadExecutionHoldsLeasesOnRunnerThreads() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setCallerThreadExecution(true);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            OfficeLease lease = pool.lease(5000L);
+            try {
+                lease.execute(NOOP_TASK);
+            } finally {
+                lease.release();
+            }
+            assertEquals(managers[0].getTasks(), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void callerThreadExecutionWaitsInQueue() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setCallerThreadExecution(true);
+        settings.setTaskQueueTimeout(200L);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        LatchTask running = new LatchTask();
+        try {
+            pool.submit(running);
+            running.awaitStarted();
+            try {
+                pool.execute(NOOP_TASK);
+                fail("task should have timed out in the queue");
+            } catch (OfficeException officeException) {
+                assertEquals(managers[0].getTasks(), 1);
+            }
+        } finally {
+            running.release();
+            pool.stop();
+        }
+    }
+
+    public void interruptedLeaseRequestIsWithdrawn() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        final ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        LatchTask busy = new LatchTask();
+        try {
+            pool.submit(busy);
+            assertTrue(busy.awaitStarted());
+
+            final AtomicReference<Exception> leaseFailure = new AtomicReference<Exception>();
+            Thread leasing = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        pool.lease(60000L);
+                    } catch (OfficeException officeException) {
+                        leaseFailure.set(officeException);
+                    }
+                }
+            };
+            leasing.start();
+            sleep(200L);
+            leasing.interrupt();
+            leasing.join(5000L);
+            assertTrue(leaseFailure.get() != null);
+
+            // the process is not held for the withdrawn lease
+            busy.release();
+            pool.submit(NOOP_TASK).get(1000L, TimeUnit.MILLISECONDS);
+        } finally {
+            busy.release();
+            pool.stop();
+        }
+    }
+
+    public void retriesHedgedTaskAfterBothRunsFailed() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(2);
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings();
+        settings.setMinInstances(2);
+        settings.setHedgePercentile(50);
+        settings.setProcessFailureRetries(1);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), settings);
+        pool.start();
+        try {
+            awaitRunning(managers, 2);
+            // a history of short durations, so that the slow first attempt is hedged
+            OfficeTask shortTask = new OfficeTask() {
+                public void execute(OfficeContext context) {
+                    sleep(20L);
+                }
+            };
+            pool.submit(shortTask, new OfficeTaskOptions().setCostKey("key")).join();
+
+            final AtomicInteger attempts = new AtomicInteger();
+            final AtomicInteger hedges = new AtomicInteger();
+            HedgeableOfficeTask task = new HedgeableOfficeTask() {
+                public void execute(OfficeContext context) {
+                    if (attempts.incrementAndGet() == 1) {
+                        sleep(300L);
+                        throw new OfficeProcessFailedException("office process lost", null, false);
+                    }
+                }
+                public OfficeTask createHedge() {
+                    return new OfficeTask() {
+                        public void execute(OfficeContext context) {
+                            hedges.incrementAndGet();
+                            throw new OfficeProcessFailedException("office process lost", null, false);
+                        }
+                    };
+                }
+                public void acceptHedge(OfficeTask hedge) {
+                    fail("failed hedge must not be accepted");
+                }
+                public void discardHedge(OfficeTask hedge) {
+                    // nothing written
+                }
+            };
+            pool.submit(task, new OfficeTaskOptions().setCostKey("key").setIdempotent(true)).join();
+            assertEquals(attempts.get(), 2);
+            assertTrue(hedges.get() >= 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void dispatchesOnlyToReadyInstances() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        try {
+            // the idle process is lost and restarting
+            managers[0].setState(OfficeInstanceState.RESTARTING);
+            OfficeTaskFuture future = pool.submit(NOOP_TASK);
+            Thread.sleep(300L);
+            assertFalse(future.isDone());
+            assertEquals(managers[0].getTasks(), 0);
+
+            managers[0].setState(OfficeInstanceState.READY);
+            future.get(5, TimeUnit.SECONDS);
+            assertEquals(managers[0].getTasks(), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void startsInstanceAfreshWhenRestartFails() throws Exception {
+        FakePooledOfficeManager[] managers = createManagers(1);
+        ProcessPoolOfficeManager pool = new ProcessPoolOfficeManager(managers, new OfficeVersion(), new ProcessPoolOfficeManagerSettings());
+        pool.start();
+        try {
+            managers[0].setState(OfficeInstanceState.RESTARTING);
+            managers[0].setState(OfficeInstanceState.DEAD);
+            pool.submit(NOOP_TASK).get(5, TimeUnit.SECONDS);
+            assertEquals(managers[0].getStarts(), 2);
+            assertEquals(managers[0].getTasks(), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    private static void sleep(long time) {
+        try {
+            Thread.sleep(time);
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted", interruptedException);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+@Test
+public class QuarantineRegistryTest {
+
+    public void quarantinesAfterMaxStrikes() {
+        QuarantineRegistry quarantine = new QuarantineRegistry(2);
+        assertFalse(quarantine.hasStrikes());
+
+        assertEquals(quarantine.recordStrike("bad"), 1);
+        assertTrue(quarantine.hasStrikes());
+        assertFalse(quarantine.isQuarantined("bad"));
+        assertEquals(quarantine.recordStrike("bad"), 2);
+        assertTrue(quarantine.isQuarantined("bad"));
+        assertFalse(quarantine.isQuarantined("good"));
+    }
+
+    public void successClearsStrikes() {
+        QuarantineRegistry quarantine = new QuarantineRegistry(2);
+        quarantine.recordStrike("flaky");
+        quarantine.clearStrikes("flaky");
+
+        assertFalse(quarantine.hasStrikes());
+        assertEquals(quarantine.recordStrike("flaky"), 1);
+    }
+
+    public void forgetsLeastRecentlyStruckInputs() {
+        QuarantineRegistry quarantine = new QuarantineRegistry(1);
+        quarantine.recordStrike("first");
+        for (int i = 0; i < QuarantineRegistry.MAX_ENTRIES; i++) {
+            quarantine.recordStrike("input" + i);
+        }
+        assertFalse(quarantine.isQuarantined("first"));
+        assertTrue(quarantine.isQuarantined("input0"));
+    }
+
+}
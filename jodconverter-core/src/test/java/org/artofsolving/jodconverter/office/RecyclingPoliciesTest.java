@@ -0,0 +1,102 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import org.artofsolving.jodconverter.office.StandardDispatchPolicyTest.Instance;
+import org.artofsolving.jodconverter.process.ProcessManager;
+import org.testng.annotations.Test;
+
+@Test
+public class RecyclingPoliciesTest {
+
+    public void maxResidentMemory() {
+        RecyclingPolicy policy = RecyclingPolicies.maxResidentMemory(1024L * 1024L * 1024L);
+        Instance instance = new Instance(10, 1000L, 0.0);
+        assertFalse(policy.shouldRecycle(instance));
+        instance.residentMemory = 2L * 1024L * 1024L * 1024L;
+        assertTrue(policy.shouldRecycle(instance));
+    }
+
+    public void maxLatencyDrift() {
+        RecyclingPolicy policy = RecyclingPolicies.maxLatencyDrift(2.0);
+        Instance instance = new Instance(20, 2500L, 0.0);
+        assertFalse(policy.shouldRecycle(instance));
+        instance.baselineTaskDuration = 1000L;
+        assertTrue(policy.shouldRecycle(instance));
+        instance.baselineTaskDuration = 1500L;
+        assertFalse(policy.shouldRecycle(instance));
+    }
+
+    public void unknownResidentMemoryNeverTriggers() {
+        RecyclingPolicy policy = RecyclingPolicies.maxResidentMemory(0L);
+        Instance instance = new Instance(10, 1000L, 0.0);
+        instance.residentMemory = -1L;
+        assertFalse(policy.shouldRecycle(instance));
+    }
+
+    public void latencyDriftNeedsBaseline() {
+        RecyclingPolicy policy = RecyclingPolicies.maxLatencyDrift(1.0);
+        Instance instance = new Instance(5, 100000L, 0.0);
+        instance.baselineTaskDuration = 0L;
+        assertFalse(policy.shouldRecycle(instance));
+    }
+
+    public void maxAge() {
+        RecyclingPolicy policy = RecyclingPolicies.maxAge(60000L);
+        Instance instance = new Instance(1, 1000L, 0.0);
+        instance.uptime = 60000L;
+        assertFalse(policy.shouldRecycle(instance));
+        instance.uptime = 60001L;
+        assertTrue(policy.shouldRecycle(instance));
+    }
+
+    public void policyTriggersRecyclingOfManager() {
+        PooledOfficeManagerSettings settings = new PooledOfficeManagerSettings(UnoUrl.socket(2002));
+        settings.setRecyclingPolicy(RecyclingPolicies.maxAge(-1L));
+        PooledOfficeManager manager = new PooledOfficeManager(settings);
+        assertEquals(manager.getTasksUntilRecycle(), 0);
+
+        settings.setRecyclingPolicy(RecyclingPolicies.maxAge(60000L));
+        PooledOfficeManager youngManager = new PooledOfficeManager(settings);
+        assertEquals(youngManager.getTasksUntilRecycle(), PooledOfficeManagerSettings.DEFAULT_MAX_TASKS_PER_PROCESS);
+    }
+
+    public void anyOf() {
+        RecyclingPolicy policy = RecyclingPolicies.anyOf(RecyclingPolicies.maxAge(60000L), RecyclingPolicies.maxResidentMemory(1024L));
+        Instance instance = new Instance(1, 1000L, 0.0);
+        assertFalse(policy.shouldRecycle(instance));
+        instance.uptime = 120000L;
+        assertTrue(policy.shouldRecycle(instance));
+    }
+
+    public void parseResidentMemory() throws Exception {
+        String status = "Name:\tsoffice.bin\nVmPeak:\t 2048000 kB\nVmRSS:\t  512000 kB\nThreads:\t9\n";
+        assertEquals(ProcStatus.parseResidentMemory(new BufferedReader(new StringReader(status))), 512000L * 1024L);
+        assertEquals(ProcStatus.parseResidentMemory(new BufferedReader(new StringReader("Name:\tsoffice.bin\n"))), -1L);
+        assertEquals(ProcStatus.parseResidentMemory(new BufferedReader(new StringReader("VmRSS:\t  4096\n"))), 4096L);
+        assertEquals(ProcStatus.parseResidentMemory(new BufferedReader(new StringReader("VmRSS:\t  n/a kB\n"))), -1L);
+    }
+
+    public void readResidentMemoryOfUnknownProcess() {
+        assertEquals(ProcStatus.readResidentMemory(ProcessManager.PID_UNKNOWN), -1L);
+        assertEquals(ProcStatus.readResidentMemory(ProcessManager.PID_NOT_FOUND), -1L);
+    }
+
+}
@@ -0,0 +1,46 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+@Test
+public class RestartGovernorTest {
+
+    public void recycleLimitIsJitteredDownwards() {
+        RestartGovernor governor = new RestartGovernor(0, 0.1, 1000L, 60000L);
+        for (int i = 0; i < 100; i++) {
+            int limit = governor.nextRecycleLimit(200);
+            assertTrue(limit >= 180 && limit <= 200, "limit out of range: " + limit);
+        }
+        assertEquals(governor.nextRecycleLimit(0), 0);
+    }
+
+    public void defaultGovernorDoesNotJitter() {
+        assertEquals(new RestartGovernor().nextRecycleLimit(200), 200);
+    }
+
+    public void crashRestartDelayBacksOffExponentially() {
+        RestartGovernor governor = new RestartGovernor(0, 0.0, 1000L, 5000L);
+        assertEquals(governor.getCrashRestartDelay(1), 0L);
+        assertEquals(governor.getCrashRestartDelay(2), 1000L);
+        assertEquals(governor.getCrashRestartDelay(3), 2000L);
+        assertEquals(governor.getCrashRestartDelay(4), 4000L);
+        assertEquals(governor.getCrashRestartDelay(5), 5000L);
+        assertEquals(governor.getCrashRestartDelay(50), 5000L);
+    }
+
+}
@@ -0,0 +1,86 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+@Test
+public class StandardDispatchPolicyTest {
+
+    static class Instance implements OfficeInstanceMetrics {
+        private final int tasksServed;
+        private final long averageTaskDuration;
+        private final double failureRate;
+        long baselineTaskDuration = 0L;
+        long uptime = 0L;
+        long residentMemory = -1L;
+
+        public Instance(int tasksServed, long averageTaskDuration, double failureRate) {
+            this.tasksServed = tasksServed;
+            this.averageTaskDuration = averageTaskDuration;
+            this.failureRate = failureRate;
+        }
+
+        public long getBaselineTaskDuration() {
+            return baselineTaskDuration;
+        }
+
+        public long getUptime() {
+            return uptime;
+        }
+
+        public long getResidentMemory() {
+            return residentMemory;
+        }
+
+        public OfficeInstanceState getState() {
+            return OfficeInstanceState.READY;
+        }
+
+        public int getTasksServed() {
+            return tasksServed;
+        }
+
+        public long getAverageTaskDuration() {
+            return averageTaskDuration;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+    }
+
+    private final Instance oldest = new Instance(10, 500L, 0.0);
+    private final Instance fresh = new Instance(1, 800L, 0.5);
+    private final Instance newest = new Instance(5, 900L, 0.0);
+    private final List<Instance> idle = Arrays.asList(oldest, fresh, newest);
+
+    public void fifoAndLifo() {
+        assertSame(StandardDispatchPolicy.FIFO.select(idle), oldest);
+        assertSame(StandardDispatchPolicy.LIFO.select(idle), newest);
+    }
+
+    public void leastTasksServed() {
+        assertSame(StandardDispatchPolicy.LEAST_TASKS_SERVED.select(idle), fresh);
+    }
+
+    public void healthScoredAvoidsFailingInstances() {
+        assertSame(StandardDispatchPolicy.HEALTH_SCORED.select(idle), oldest);
+    }
+
+}
@@ -0,0 +1,85 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finishes every submitted task straight away without executing it, failing it with the
+ * configured failure if any.
+ */
+public class StubOfficeManager implements OfficeManager {
+
+    private final AtomicInteger submissions = new AtomicInteger();
+    private volatile OfficeException failure;
+    private volatile boolean running = true;
+
+    public void execute(OfficeTask task) throws OfficeException {
+        submit(task).join();
+    }
+
+    public OfficeTaskFuture submit(OfficeTask task) throws OfficeException {
+        return submit(task, new OfficeTaskOptions());
+    }
+
+    public OfficeTaskFuture submit(OfficeTask task, OfficeTaskOptions options) throws OfficeException {
+        if (!running) {
+            throw new IllegalStateException("this OfficeManager is currently stopped");
+        }
+        submissions.incrementAndGet();
+        OfficeTaskFuture future = new OfficeTaskFuture(task, options);
+        if (failure == null) {
+            future.complete();
+        } else {
+            future.fail(failure);
+        }
+        return future;
+    }
+
+    public OfficeLease lease(long leaseTime) throws OfficeException {
+        throw new UnsupportedOperationException();
+    }
+
+    public OfficeLease lease(long leaseTime, OfficeTaskOptions options) throws OfficeException {
+        throw new UnsupportedOperationException();
+    }
+
+    public OfficeTaskEstimate estimate(OfficeTaskOptions options) {
+        return new OfficeTaskEstimate(0L, 0L);
+    }
+
+    public void start() {
+        running = true;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public OfficeVersion getVersion() {
+        return new OfficeVersion();
+    }
+
+    public void setFailure(OfficeException failure) {
+        this.failure = failure;
+    }
+
+    public int getSubmissions() {
+        return submissions.get();
+    }
+
+}
@@ -0,0 +1,52 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+@Test
+public class TaskDurationModelTest {
+
+    public void unknownKeyHasNoEstimate() {
+        TaskDurationModel model = new TaskDurationModel();
+        assertEquals(model.getExpectedDuration("doc->pdf#0"), 0L);
+        assertEquals(model.getExpectedDuration(null), 0L);
+    }
+
+    public void medianAndPercentilePerKey() {
+        TaskDurationModel model = new TaskDurationModel();
+        for (long duration = 100L; duration <= 1000L; duration += 100L) {
+            model.record("doc->pdf#0", duration);
+        }
+        model.record("xls->pdf#0", 5000L);
+
+        assertEquals(model.getExpectedDuration("doc->pdf#0"), 500L);
+        assertEquals(model.getPercentile("doc->pdf#0", 90), 900L);
+        assertEquals(model.getPercentile("doc->pdf#0", 100), 1000L);
+        assertEquals(model.getExpectedDuration("xls->pdf#0"), 5000L);
+    }
+
+    public void keepsOnlyRecentDurations() {
+        TaskDurationModel model = new TaskDurationModel();
+        for (int i = 0; i < TaskDurationModel.WINDOW; i++) {
+            model.record("doc->pdf#0", 10000L);
+        }
+        for (int i = 0; i < TaskDurationModel.WINDOW; i++) {
+            model.record("doc->pdf#0", 100L);
+        }
+        assertEquals(model.getPercentile("doc->pdf#0", 100), 100L);
+    }
+
+}